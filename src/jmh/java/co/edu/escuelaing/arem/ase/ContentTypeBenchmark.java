@@ -0,0 +1,34 @@
+package co.edu.escuelaing.arem.ase;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de {@link StarWarsWebApp#getContentType(String)} para extensiones al principio y al
+ * final de la cadena de comprobaciones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContentTypeBenchmark {
+    @Param({"/index.html", "/js/app.js", "/img/titulo.png", "/favicon.ico", "/api/film/4"})
+    private String path;
+
+    @Benchmark
+    public String contentType() {
+        return StarWarsWebApp.getContentType(path);
+    }
+}
@@ -0,0 +1,104 @@
+package co.edu.escuelaing.arem.ase;
+
+import co.edu.escuelaing.arem.ase.server.ServerEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ruta completa de una petición contra el servidor embebido, con {@link SwapiStub} en lugar de
+ * SWAPI. Mide el rendimiento (peticiones/s) y la distribución de latencias (percentiles de
+ * {@code SampleTime}) de las rutas dinámicas y de los archivos estáticos con cada motor HTTP,
+ * sobre la misma tabla de rutas.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class EndToEndBenchmark {
+    @Param({"jdk", "nio"})
+    public String engine;
+
+    private SwapiStub swapi;
+    private ServerEngine server;
+    private HttpClient client;
+    private HttpRequest film;
+    private HttpRequest staticFile;
+    private HttpRequest staticRevalidation;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        // SwapiStub también es un HttpServer del JDK: la configuración de conexiones va antes
+        StarWarsWebApp.configureConnections();
+        swapi = SwapiStub.start();
+        System.setProperty("starwars.swapi.films-url", swapi.filmsUrl());
+        System.setProperty("starwars.server.engine", engine);
+        // Todas las peticiones llegan desde 127.0.0.1: el límite por cliente mediría solo los 429
+        System.setProperty("starwars.admission.rate-per-second", "0");
+        StarWarsWebApp.setupRoutes();
+        server = StarWarsWebApp.startServer(0);
+
+        String baseUrl = "http://localhost:" + server.port();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        film = HttpRequest.newBuilder(URI.create(baseUrl + "/api/film/4")).build();
+        staticFile = HttpRequest.newBuilder(URI.create(baseUrl + "/js/app.js")).build();
+
+        HttpResponse<Void> first = client.send(staticFile, HttpResponse.BodyHandlers.discarding());
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+        staticRevalidation = HttpRequest.newBuilder(URI.create(baseUrl + "/js/app.js"))
+                .header("If-None-Match", etag)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+        swapi.close();
+    }
+
+    @Benchmark
+    public int filmLookup() throws IOException, InterruptedException {
+        return client.send(film, HttpResponse.BodyHandlers.ofByteArray()).statusCode();
+    }
+
+    @Benchmark
+    public int staticFile() throws IOException, InterruptedException {
+        return client.send(staticFile, HttpResponse.BodyHandlers.ofByteArray()).statusCode();
+    }
+
+    @Benchmark
+    public int staticNotModified() throws IOException, InterruptedException {
+        return client.send(staticRevalidation, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EndToEndBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,120 @@
+package co.edu.escuelaing.arem.ase;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de resolver una ruta a medida que crece la tabla de rutas: el trie de {@link Router}
+ * frente al recorrido con stream y {@code String.split} que usaba {@code StarWarsWebApp}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RouterBenchmark {
+    @Param({"10", "100", "500"})
+    private int routes;
+
+    private Router<String> router;
+    private Map<String, String> legacyRoutes;
+    private String hitPath;
+    private String missPath;
+
+    @Setup
+    public void setUp() {
+        router = new Router<>();
+        legacyRoutes = new LinkedHashMap<>();
+        for (int i = 0; i < routes; i++) {
+            String pattern = String.format("/api/resource%d/:id/related%d", i, i % 7);
+            router.add("GET", pattern, pattern);
+            legacyRoutes.put(pattern, pattern);
+        }
+        router.add("GET", "/api/film/:id", "film");
+        legacyRoutes.put("/api/film/:id", "film");
+
+        hitPath = String.format("/api/resource%d/42/related%d", routes / 2, (routes / 2) % 7);
+        missPath = "/js/app.js";
+    }
+
+    @Benchmark
+    public Object trieHit() {
+        return router.match("GET", hitPath);
+    }
+
+    @Benchmark
+    public Object trieMiss() {
+        return router.match("GET", missPath);
+    }
+
+    @Benchmark
+    public Object legacyHit() {
+        return legacyMatch(hitPath);
+    }
+
+    @Benchmark
+    public Object legacyMiss() {
+        return legacyMatch(missPath);
+    }
+
+    private Map<String, String> legacyMatch(String path) {
+        return legacyRoutes.keySet().stream()
+                .filter(pattern -> matchesRoute(pattern, path))
+                .findFirst()
+                .map(pattern -> extractParams(pattern, path))
+                .orElse(null);
+    }
+
+    private static boolean matchesRoute(String routePattern, String actualPath) {
+        String[] routeParts = routePattern.split("/");
+        String[] pathParts = actualPath.split("/");
+
+        if (routeParts.length != pathParts.length) return false;
+
+        for (int i = 0; i < routeParts.length; i++) {
+            if (!routeParts[i].startsWith(":") && !routeParts[i].equals(pathParts[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, String> extractParams(String routePattern, String actualPath) {
+        Map<String, String> params = new HashMap<>();
+        String[] routeParts = routePattern.split("/");
+        String[] pathParts = actualPath.split("/");
+
+        for (int i = 0; i < routeParts.length; i++) {
+            if (routeParts[i].startsWith(":")) {
+                params.put(routeParts[i].substring(1), pathParts[i]);
+            }
+        }
+        return params;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RouterBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,62 @@
+package co.edu.escuelaing.arem.ase.controller;
+
+import co.edu.escuelaing.arem.ase.Response;
+import co.edu.escuelaing.arem.ase.SwapiStub;
+import co.edu.escuelaing.arem.ase.model.Movie;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización de una película en el controlador: la respuesta precodificada en caché frente a
+ * {@code gson.toJson} más {@code getBytes} en cada petición. El catálogo se carga desde
+ * {@link SwapiStub}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MovieControllerBenchmark {
+    private SwapiStub swapi;
+    private Movie movie;
+    private Gson gson;
+
+    @Setup
+    public void setUp() throws IOException {
+        swapi = SwapiStub.start();
+        // Debe definirse antes de que se inicialice MovieController
+        System.setProperty("starwars.swapi.films-url", swapi.filmsUrl());
+        gson = new Gson();
+        movie = gson.fromJson(MovieController.getMovie("4"), Movie.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        swapi.close();
+    }
+
+    @Benchmark
+    public Response cachedResponse() {
+        return MovieController.getMovieAsync("4").join();
+    }
+
+    @Benchmark
+    public byte[] gsonPerRequest() {
+        return gson.toJson(movie).getBytes(StandardCharsets.UTF_8);
+    }
+}
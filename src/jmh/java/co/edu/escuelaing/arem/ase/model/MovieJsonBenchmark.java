@@ -0,0 +1,83 @@
+package co.edu.escuelaing.arem.ase.model;
+
+import co.edu.escuelaing.arem.ase.SwapiStub;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización y lectura de una película: Gson por reflexión frente a {@link MovieJson}.
+ * Ejecutar con {@code -prof gc} para ver los bytes reservados por operación.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MovieJsonBenchmark {
+    private Gson gson;
+    private Movie movie;
+    private String json;
+
+    @Setup
+    public void setUp() throws IOException {
+        gson = new Gson();
+        String page = new String(SwapiStub.readFixture("/swapi-films.json"), StandardCharsets.UTF_8);
+        JsonArray results = gson.fromJson(page, JsonObject.class).getAsJsonArray("results");
+        movie = gson.fromJson(results.get(3), Movie.class);
+        json = gson.toJson(movie);
+        // Las dos rutas deben producir los mismos bytes; si no, los ETag cambiarían
+        if (!Arrays.equals(json.getBytes(StandardCharsets.UTF_8), MovieJson.toJson(movie))) {
+            throw new IllegalStateException("MovieJson no coincide con Gson para " + movie.getTitle());
+        }
+    }
+
+    @Benchmark
+    public byte[] gsonWrite() {
+        return gson.toJson(movie).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] movieJsonWrite() {
+        return MovieJson.toJson(movie);
+    }
+
+    @Benchmark
+    public Movie gsonRead() {
+        return gson.fromJson(json, Movie.class);
+    }
+
+    @Benchmark
+    public Movie movieJsonRead() throws IOException {
+        return MovieJson.read(new JsonReader(new StringReader(json)));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MovieJsonBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
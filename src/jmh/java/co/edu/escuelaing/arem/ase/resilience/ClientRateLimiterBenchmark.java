@@ -0,0 +1,76 @@
+package co.edu.escuelaing.arem.ase.resilience;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coste de la admisión por cliente con varios hilos a la vez. Con {@code clients=same} todos
+ * los hilos compiten por la misma cubeta; con {@code distinct} cada hilo es un cliente
+ * distinto. {@code admitted} usa una tasa que nunca se agota (cada llamada hace su CAS) y
+ * {@code rejected} una que ya se agotó (cada llamada solo lee la cubeta).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ClientRateLimiterBenchmark {
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
+    @Param({"same", "distinct"})
+    private String clients;
+
+    @Param({"admitted", "rejected"})
+    private String outcome;
+
+    private ClientRateLimiter limiter;
+
+    @State(Scope.Thread)
+    public static class Client {
+        private InetAddress address;
+
+        @Setup
+        public void setUp(ClientRateLimiterBenchmark benchmark) throws UnknownHostException {
+            int thread = "distinct".equals(benchmark.clients) ? THREADS.incrementAndGet() : 0;
+            address = InetAddress.getByAddress(new byte[]{10, 0, (byte) (thread >> 8), (byte) thread});
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        limiter = "admitted".equals(outcome)
+                ? new ClientRateLimiter(1e9, 1_000_000, 4096)
+                : new ClientRateLimiter(1e-3, 1, 4096);
+    }
+
+    @Benchmark
+    public long tryAcquire(Client client) {
+        return limiter.tryAcquire(client.address);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ClientRateLimiterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
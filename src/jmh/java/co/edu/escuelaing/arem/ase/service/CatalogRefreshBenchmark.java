@@ -0,0 +1,70 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import co.edu.escuelaing.arem.ase.SwapiStub;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de un refresco del catálogo contra el servidor local: con {@code full} el servidor
+ * ignora los validadores y cada refresco transfiere, decodifica e indexa el listado; con
+ * {@code conditional} responde 304 y el refresco solo reinicia la edad del catálogo.
+ * Ejecutar con {@code -prof gc} para ver los bytes reservados por refresco.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CatalogRefreshBenchmark {
+    @Param({"full", "conditional"})
+    private String revalidation;
+
+    private SwapiStub swapi;
+    private MovieService service;
+
+    @Setup
+    public void setUp() throws IOException, MovieServiceException {
+        // Sin TCP_NODELAY el servidor de pruebas tarda ~40 ms por respuesta con cuerpo (Nagle y ACK retardado)
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        swapi = SwapiStub.start();
+        swapi.conditionalResponses("conditional".equals(revalidation));
+        service = new MovieService(swapi.filmsUrl(), Duration.ofMinutes(30));
+        service.getMovieById("4");
+    }
+
+    @TearDown
+    public void tearDown() {
+        swapi.close();
+    }
+
+    @Benchmark
+    public void refresh() {
+        service.refreshCatalogNow().join();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CatalogRefreshBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,85 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import co.edu.escuelaing.arem.ase.SwapiStub;
+import co.edu.escuelaing.arem.ase.model.Movie;
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara, por petición, la ruta DOM original (cuerpo como String + árbol JsonObject +
+ * búsqueda lineal) con el decodificador en streaming sobre un listado de SWAPI grabado.
+ * Ejecutar con {@code -prof gc} para ver los bytes reservados por operación.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilmsDecoderBenchmark {
+    @Param({"4"})
+    private int episodeId;
+
+    private byte[] payload;
+    private Gson gson;
+
+    @Setup
+    public void setUp() throws IOException {
+        payload = SwapiStub.readFixture("/swapi-films.json");
+        gson = new GsonBuilder()
+                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+                .create();
+    }
+
+    @Benchmark
+    public Movie domTree() {
+        String responseBody = new String(payload, StandardCharsets.UTF_8);
+        JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
+        JsonArray results = jsonResponse.getAsJsonArray("results");
+        for (JsonElement element : results) {
+            JsonObject movieJson = element.getAsJsonObject();
+            if (movieJson.has("episode_id") && movieJson.get("episode_id").getAsInt() == episodeId) {
+                return gson.fromJson(movieJson, Movie.class);
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Movie streaming() throws IOException {
+        InputStreamReader body = new InputStreamReader(new ByteArrayInputStream(payload), StandardCharsets.UTF_8);
+        return EpisodeIndex.of(FilmsDecoder.decode(body)).get(episodeId);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FilmsDecoderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
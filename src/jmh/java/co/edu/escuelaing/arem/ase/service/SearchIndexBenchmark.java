@@ -0,0 +1,125 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import co.edu.escuelaing.arem.ase.SwapiStub;
+import co.edu.escuelaing.arem.ase.model.Movie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Búsqueda de texto: el índice invertido del catálogo frente a recorrer todas las películas
+ * buscando las palabras en cada campo. Con {@code copies} mayor que 1 el catálogo grabado se
+ * replica, para ver cómo escala con colecciones del tamaño de personajes o planetas.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchIndexBenchmark {
+    private static final List<SearchIndex.Field<Movie>> FIELDS = List.of(
+            new SearchIndex.Field<>(Movie::getTitle, 4),
+            new SearchIndex.Field<>(Movie::getDirector, 2),
+            new SearchIndex.Field<>(Movie::getProducer, 2),
+            new SearchIndex.Field<>(Movie::getReleaseDate, 1),
+            new SearchIndex.Field<>(Movie::getOpeningCrawl, 1));
+
+    @Param({"1", "1000"})
+    private int copies;
+
+    @Param({"luke skywalker", "emp"})
+    private String query;
+
+    private List<Movie> movies;
+    private SearchIndex<Movie> index;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] payload = SwapiStub.readFixture("/swapi-films.json");
+        List<Movie> films = FilmsDecoder.decode(new InputStreamReader(new ByteArrayInputStream(payload), StandardCharsets.UTF_8));
+        movies = new ArrayList<>(films.size() * copies);
+        for (int copy = 0; copy < copies; copy++) {
+            for (Movie film : films) {
+                movies.add(new Movie(film.getTitle(), copy * films.size() + film.getEpisodeId(), film.getOpeningCrawl(),
+                        film.getDirector(), film.getProducer(), film.getReleaseDate()));
+            }
+        }
+        index = SearchIndex.of(movies, FIELDS);
+        int found = index.search(query, movies.size()).size();
+        if (found == 0 || found != linearScan().size()) {
+            throw new IllegalStateException("El índice y el recorrido no encuentran lo mismo para " + query);
+        }
+    }
+
+    @Benchmark
+    public List<Movie> invertedIndex() {
+        return index.search(query, 10);
+    }
+
+    /**
+     * Recorrido sin índice: cada término debe aparecer en algún campo, el último como prefijo
+     */
+    @Benchmark
+    public List<Movie> linearScan() {
+        List<String> terms = new ArrayList<>();
+        SearchIndex.tokenize(query, terms);
+        List<Movie> found = new ArrayList<>();
+        List<String> words = new ArrayList<>();
+        for (Movie movie : movies) {
+            words.clear();
+            for (SearchIndex.Field<Movie> field : FIELDS) {
+                SearchIndex.tokenize(field.value().apply(movie), words);
+            }
+            if (matchesAll(terms, words)) {
+                found.add(movie);
+            }
+        }
+        return found;
+    }
+
+    private static boolean matchesAll(List<String> terms, List<String> words) {
+        for (int t = 0; t < terms.size(); t++) {
+            String term = terms.get(t);
+            boolean last = t == terms.size() - 1;
+            boolean matched = false;
+            for (String word : words) {
+                if (last ? word.startsWith(term) : word.equals(term)) {
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SearchIndexBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
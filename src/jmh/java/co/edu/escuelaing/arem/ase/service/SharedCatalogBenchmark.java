@@ -0,0 +1,112 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import co.edu.escuelaing.arem.ase.SwapiStub;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Varias réplicas del servicio contra el servidor local con un TTL corto, para que refresquen
+ * muchas veces por iteración. El contador {@code upstreamRequests} muestra las peticiones que
+ * llegan al servidor: con {@code none} cada réplica refresca por su cuenta, y con una caché
+ * compartida debería bajar aproximadamente en el número de réplicas.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SharedCatalogBenchmark {
+    private static final int REPLICAS = 4;
+    private static final Duration TTL = Duration.ofMillis(200);
+
+    @Param({"none", "in-process", "file"})
+    private String cache;
+
+    private SwapiStub swapi;
+    private Path directory;
+    private MovieService[] replicas;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        swapi = SwapiStub.start();
+        swapi.conditionalResponses(true);
+        SharedCatalogCache shared = null;
+        if ("in-process".equals(cache)) {
+            shared = new InProcessCatalogCache();
+        } else if ("file".equals(cache)) {
+            directory = Files.createTempDirectory("starwars-shared-catalog");
+        }
+        replicas = new MovieService[REPLICAS];
+        for (int i = 0; i < REPLICAS; i++) {
+            // Con archivo cada réplica abre el directorio por su cuenta, como procesos distintos
+            SharedCatalogCache replicaCache = directory != null ? new FileCatalogCache(directory) : shared;
+            replicas[i] = new MovieService(swapi.filmsUrl(), TTL, null, replicaCache);
+            replicas[i].lookupMovieAsync("4").join();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        swapi.close();
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public MovieLookup lookup(Upstream upstream) {
+        MovieLookup lookup = replicas[next++ % REPLICAS].lookupMovieAsync("4").join();
+        upstream.requests = swapi.requests() - upstream.baseline;
+        return lookup;
+    }
+
+    /**
+     * Peticiones recibidas por el servidor local durante la iteración
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Upstream {
+        public long requests;
+        private long baseline;
+
+        @Setup(Level.Iteration)
+        public void reset(SharedCatalogBenchmark benchmark) {
+            baseline = benchmark.swapi.requests();
+            requests = 0;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SharedCatalogBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,80 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import co.edu.escuelaing.arem.ase.SwapiStub;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia de las consultas de películas con SWAPI sano, lento o devolviendo errores. El
+ * catálogo expira cada 50 ms, así que durante la medición hay refrescos continuos contra el
+ * servidor degradado; con el cortocircuito y el catálogo obsoleto la latencia de las consultas
+ * debe mantenerse en microsegundos en los tres casos.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class UpstreamFaultBenchmark {
+    @Param({"healthy", "slow", "failing"})
+    private String upstream;
+
+    private SwapiStub swapi;
+    private MovieService service;
+
+    @Setup
+    public void setUp() throws IOException, MovieServiceException {
+        System.setProperty("starwars.swapi.timeout-ms", "1000");
+        System.setProperty("starwars.swapi.breaker.open-ms", "1000");
+        swapi = SwapiStub.start();
+        service = new MovieService(swapi.filmsUrl(), Duration.ofMillis(50));
+        // El primer catálogo se carga con SWAPI sano; después se degrada el servidor
+        service.getMovieById("4");
+        switch (upstream) {
+            case "slow":
+                swapi.delayResponses(Duration.ofSeconds(5));
+                break;
+            case "failing":
+                swapi.failWith(503);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        swapi.close();
+    }
+
+    @Benchmark
+    public MovieLookup lookup() {
+        return service.lookupMovieAsync("4").join();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UpstreamFaultBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
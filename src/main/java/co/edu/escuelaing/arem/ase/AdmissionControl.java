@@ -0,0 +1,108 @@
+package co.edu.escuelaing.arem.ase;
+
+import co.edu.escuelaing.arem.ase.metrics.Counter;
+import co.edu.escuelaing.arem.ase.metrics.Metrics;
+import co.edu.escuelaing.arem.ase.resilience.ClientRateLimiter;
+
+import java.net.InetAddress;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Control de admisión de las peticiones, antes de enrutarlas:
+ * <ul>
+ *     <li>un límite de peticiones por segundo por dirección de cliente, que responde 429 con
+ *     {@code Retry-After} cuando el cliente agota su ráfaga;</li>
+ *     <li>un límite global de peticiones en curso, contadas hasta que se envía la respuesta
+ *     (también las que esperan a SWAPI), que responde 503 en lugar de encolar.</li>
+ * </ul>
+ * Ambos rechazos usan respuestas precodificadas, así que rechazar no cuesta más que admitir.
+ * La dirección es la del socket: detrás de un proxy todos los clientes comparten la del proxy.
+ */
+final class AdmissionControl {
+    static final String RATE_KEY = "starwars.admission.rate-per-second";
+    static final String BURST_KEY = "starwars.admission.burst";
+    static final String BUCKETS_KEY = "starwars.admission.buckets";
+    static final String MAX_IN_FLIGHT_KEY = "starwars.admission.max-in-flight";
+    private static final int DEFAULT_RATE = 100;
+    private static final int DEFAULT_BURST = 200;
+    private static final int DEFAULT_BUCKETS = 4096;
+    private static final int DEFAULT_MAX_IN_FLIGHT = 512;
+    // Las esperas mayores se anuncian como este máximo; el cliente volverá a ser evaluado al reintentar
+    private static final int MAX_RETRY_AFTER_S = 60;
+    private static final String RETRY_AFTER_HEADER = "Retry-After";
+    private static final String REJECTED = "starwars_admission_rejected_total";
+    private static final String REJECTED_HELP = "Peticiones rechazadas antes de enrutarse, por motivo";
+    private static final Counter RATE_LIMITED = Metrics.counter(REJECTED, REJECTED_HELP, "reason", "rate_limited");
+    private static final Counter OVERLOADED = Metrics.counter(REJECTED, REJECTED_HELP, "reason", "overloaded");
+
+    private final ClientRateLimiter rateLimiter;
+    private final Semaphore inFlight;
+    // Respuesta 429 por segundos de espera anunciados, de 1 a MAX_RETRY_AFTER_S
+    private final Response[] tooManyRequests;
+    private final Response serviceUnavailable;
+
+    /**
+     * @param rateLimiter limitador por cliente, o null para no limitar
+     * @param maxInFlight peticiones en curso permitidas, o 0 para no limitar
+     */
+    AdmissionControl(ClientRateLimiter rateLimiter, int maxInFlight) {
+        this.rateLimiter = rateLimiter;
+        this.inFlight = maxInFlight > 0 ? new Semaphore(maxInFlight) : null;
+        Response tooMany = StarWarsWebApp.errorResponse(429, "Too Many Requests");
+        this.tooManyRequests = new Response[MAX_RETRY_AFTER_S + 1];
+        for (int seconds = 1; seconds <= MAX_RETRY_AFTER_S; seconds++) {
+            tooManyRequests[seconds] = tooMany.withHeader(RETRY_AFTER_HEADER, Integer.toString(seconds));
+        }
+        this.serviceUnavailable = StarWarsWebApp.errorResponse(503, "Service Unavailable").withHeader(RETRY_AFTER_HEADER, "1");
+        if (inFlight != null) {
+            Metrics.gauge("starwars_admission_in_flight", "Peticiones admitidas que aún no han respondido",
+                    () -> maxInFlight - inFlight.availablePermits());
+        }
+    }
+
+    /**
+     * Crea el control con la configuración; una tasa o un límite de 0 desactivan esa parte
+     */
+    static AdmissionControl fromConfig() {
+        int rate = AppConfig.getInt(RATE_KEY, DEFAULT_RATE);
+        ClientRateLimiter limiter = rate > 0
+                ? new ClientRateLimiter(rate, Math.max(1, AppConfig.getInt(BURST_KEY, DEFAULT_BURST)),
+                        Math.max(1, AppConfig.getInt(BUCKETS_KEY, DEFAULT_BUCKETS)))
+                : null;
+        return new AdmissionControl(limiter, AppConfig.getInt(MAX_IN_FLIGHT_KEY, DEFAULT_MAX_IN_FLIGHT));
+    }
+
+    /**
+     * Decide si una petición se atiende. Si se admite ocupa un hueco del límite global, que
+     * debe devolverse con {@link #release()} al terminar la respuesta. El límite global se
+     * comprueba primero: una petición rechazada con 503 no gasta el cupo de su cliente.
+     * @param client dirección del cliente
+     * @return null si se admite, o la respuesta de rechazo a enviar
+     */
+    Response admit(InetAddress client) {
+        if (inFlight != null && !inFlight.tryAcquire()) {
+            OVERLOADED.increment();
+            return serviceUnavailable;
+        }
+        if (rateLimiter != null) {
+            long waitNanos = rateLimiter.tryAcquire(client);
+            if (waitNanos > 0) {
+                release();
+                RATE_LIMITED.increment();
+                long seconds = (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+                return tooManyRequests[(int) Math.min(Math.max(seconds, 1), MAX_RETRY_AFTER_S)];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Devuelve el hueco de una petición admitida
+     */
+    void release() {
+        if (inFlight != null) {
+            inFlight.release();
+        }
+    }
+}
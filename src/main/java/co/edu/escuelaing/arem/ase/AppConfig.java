@@ -0,0 +1,50 @@
+package co.edu.escuelaing.arem.ase;
+
+import java.util.Locale;
+
+/**
+ * Lectura de la configuración de la aplicación. Cada clave se busca primero como propiedad
+ * del sistema ({@code -Dstarwars.server.backlog=128}) y luego como variable de entorno con
+ * el nombre en mayúsculas y guiones bajos ({@code STARWARS_SERVER_BACKLOG=128}).
+ */
+public final class AppConfig {
+    private AppConfig() {
+    }
+
+    /**
+     * Obtiene un valor de texto
+     * @param key clave con formato de propiedad del sistema
+     * @param defaultValue valor a usar si la clave no está definida
+     * @return valor configurado o el valor por defecto
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.isBlank()) {
+            value = System.getenv(toEnvironmentName(key));
+        }
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    /**
+     * Obtiene un valor entero
+     * @param key clave con formato de propiedad del sistema
+     * @param defaultValue valor a usar si la clave no está definida
+     * @return valor configurado o el valor por defecto
+     * @throws IllegalArgumentException si el valor configurado no es un número
+     */
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("El valor de %s debe ser un número: %s", key, value), e);
+        }
+    }
+
+    static String toEnvironmentName(String key) {
+        return key.replace('.', '_').replace('-', '_').toUpperCase(Locale.ROOT);
+    }
+}
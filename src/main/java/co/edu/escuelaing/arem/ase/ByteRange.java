@@ -0,0 +1,83 @@
+package co.edu.escuelaing.arem.ase;
+
+/**
+ * Rango de bytes pedido con la cabecera Range (RFC 9110, sección 14). Solo se atiende un rango
+ * por petición; las peticiones con varios rangos reciben el recurso completo, como permite el RFC.
+ */
+final class ByteRange {
+    static final String RANGE_HEADER = "Range";
+    static final String IF_RANGE_HEADER = "If-Range";
+    static final String ACCEPT_RANGES_HEADER = "Accept-Ranges";
+    static final String CONTENT_RANGE_HEADER = "Content-Range";
+    static final String BYTES_UNIT = "bytes";
+
+    /**
+     * Marca un Range sintácticamente válido que no se solapa con el recurso (416)
+     */
+    static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+    private static final String PREFIX = BYTES_UNIT + "=";
+
+    private final long start;
+    private final long end;
+
+    private ByteRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Interpreta la cabecera Range
+     * @param header valor de la cabecera o null
+     * @param length tamaño del recurso completo
+     * @return el rango, {@link #UNSATISFIABLE}, o null si se debe servir el recurso completo
+     */
+    static ByteRange parse(String header, long length) {
+        if (header == null || !header.regionMatches(true, 0, PREFIX, 0, PREFIX.length()) || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring(PREFIX.length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // bytes=-N: los últimos N bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || length == 0) {
+                    return UNSATISFIABLE;
+                }
+                return new ByteRange(Math.max(0, length - suffix), length - 1);
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            if (start < 0 || (!last.isEmpty() && Long.parseLong(last) < start)) {
+                return null;
+            }
+            return start >= length ? UNSATISFIABLE : new ByteRange(start, end);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    long start() {
+        return start;
+    }
+
+    long length() {
+        return end - start + 1;
+    }
+
+    /**
+     * @param total tamaño del recurso completo
+     * @return valor de la cabecera Content-Range
+     */
+    String contentRange(long total) {
+        return this == UNSATISFIABLE
+                ? BYTES_UNIT + " */" + total
+                : BYTES_UNIT + " " + start + "-" + end + "/" + total;
+    }
+}
@@ -0,0 +1,86 @@
+package co.edu.escuelaing.arem.ase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Negociación de Accept-Encoding y compresión gzip de respuestas
+ */
+final class ContentEncoding {
+    static final String GZIP = "gzip";
+    static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+    static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+    static final String VARY_HEADER = "Vary";
+
+    private ContentEncoding() {
+    }
+
+    /**
+     * Indica si el cliente acepta gzip según Accept-Encoding (RFC 9110, sección 12.5.3).
+     * Un {@code gzip;q=0} explícito prevalece sobre el comodín {@code *}.
+     * @param acceptEncoding valor de la cabecera o null
+     * @return true si se puede responder con gzip
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String entry : acceptEncoding.split(",")) {
+            int separator = entry.indexOf(';');
+            String coding = (separator < 0 ? entry : entry.substring(0, separator)).trim();
+            boolean acceptable = separator < 0 || qualityOf(entry.substring(separator + 1)) > 0;
+            if (coding.equalsIgnoreCase(GZIP) || coding.equalsIgnoreCase("x-gzip")) {
+                return acceptable;
+            }
+            if (coding.equals("*")) {
+                wildcard = acceptable;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    private static double qualityOf(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.startsWith("q=") || trimmed.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(trimmed.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Indica si vale la pena comprimir un tipo de contenido; las imágenes ya vienen comprimidas
+     * @param contentType tipo MIME de la respuesta
+     * @return true para texto, JavaScript, JSON y SVG
+     */
+    static boolean isCompressible(String contentType) {
+        return contentType.startsWith("text/")
+                || contentType.startsWith("application/javascript")
+                || contentType.startsWith("application/json")
+                || contentType.startsWith("image/svg+xml");
+    }
+
+    /**
+     * Comprime un cuerpo con gzip
+     * @param bytes cuerpo sin comprimir
+     * @return cuerpo comprimido
+     */
+    static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, bytes.length / 3));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            // ByteArrayOutputStream no produce errores de E/S
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+}
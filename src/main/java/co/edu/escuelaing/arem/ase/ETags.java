@@ -0,0 +1,65 @@
+package co.edu.escuelaing.arem.ase;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Cálculo de ETags fuertes a partir del contenido de una respuesta
+ */
+public final class ETags {
+    private ETags() {
+    }
+
+    /**
+     * @param content bytes de la representación
+     * @return ETag fuerte entre comillas con los primeros 128 bits del SHA-256 del contenido
+     */
+    public static String strong(byte[] content) {
+        return strong(ByteBuffer.wrap(content));
+    }
+
+    /**
+     * @param content contenido de la representación; se consume el buffer
+     * @return ETag fuerte entre comillas con los primeros 128 bits del SHA-256 del contenido
+     */
+    public static String strong(ByteBuffer content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(content);
+            return '"' + HexFormat.of().formatHex(digest.digest(), 0, 16) + '"';
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Cada representación necesita su propio ETag fuerte, así que la variante gzip lleva un sufijo
+     * @param etag ETag fuerte de la representación sin comprimir
+     * @return ETag de la variante gzip
+     */
+    public static String gzipVariant(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    /**
+     * Comparación débil de If-None-Match (RFC 9110, sección 13.1.2)
+     * @param ifNoneMatch valor de la cabecera
+     * @param etag ETag actual de la representación
+     * @return true si alguna de las etiquetas de la cabecera coincide o si es {@code *}
+     */
+    public static boolean matchesIfNoneMatch(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            // If-None-Match usa comparación débil: se ignora el prefijo W/
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
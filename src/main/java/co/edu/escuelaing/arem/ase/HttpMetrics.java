@@ -0,0 +1,47 @@
+package co.edu.escuelaing.arem.ase;
+
+import co.edu.escuelaing.arem.ase.metrics.LatencyHistogram;
+import co.edu.escuelaing.arem.ase.metrics.Metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Latencia de las peticiones HTTP por patrón de ruta y código de estado. La etiqueta de ruta es
+ * el patrón registrado (por ejemplo {@code /api/film/:id}), nunca la ruta concreta, para que el
+ * número de series no crezca con las URLs que lleguen.
+ */
+final class HttpMetrics {
+    static final String STATIC_ROUTE = "static";
+    static final String UNMATCHED_ROUTE = "unmatched";
+    static final String REJECTED_ROUTE = "rejected";
+    private static final String NAME = "starwars_http_request_duration_seconds";
+    private static final String HELP = "Duración de las peticiones HTTP por ruta y código de estado";
+    private static final int MAX_STATUS = 600;
+    private static final Map<String, AtomicReferenceArray<LatencyHistogram>> routes = new ConcurrentHashMap<>();
+
+    private HttpMetrics() {
+    }
+
+    /**
+     * Registra una petición terminada. Tras la primera petición de cada ruta y estado solo hay
+     * una consulta al mapa y el registro en el histograma, sin reservar memoria.
+     * @param route patrón de la ruta o una de las etiquetas fijas de esta clase
+     * @param status código enviado, o -1 si no se llegó a enviar respuesta
+     * @param startNanos instante de llegada tomado con {@link System#nanoTime()}
+     */
+    static void record(String route, int status, long startNanos) {
+        AtomicReferenceArray<LatencyHistogram> byStatus = routes.get(route);
+        if (byStatus == null) {
+            byStatus = routes.computeIfAbsent(route, key -> new AtomicReferenceArray<>(MAX_STATUS));
+        }
+        int slot = status > 0 && status < MAX_STATUS ? status : 0;
+        LatencyHistogram histogram = byStatus.get(slot);
+        if (histogram == null) {
+            histogram = Metrics.histogram(NAME, HELP, "route", route, "status", Integer.toString(slot));
+            byStatus.set(slot, histogram);
+        }
+        histogram.recordSince(startNanos);
+    }
+}
@@ -0,0 +1,139 @@
+package co.edu.escuelaing.arem.ase;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Respuesta de una ruta dinámica con el cuerpo ya codificado en UTF-8. Es inmutable, así que
+ * los controladores pueden construirla una vez y reutilizarla en todas las peticiones.
+ */
+public final class Response {
+    public static final String APPLICATION_JSON = "application/json; charset=utf-8";
+    private static final byte[] NOT_COMPRESSIBLE = new byte[0];
+    private static final String[] NO_HEADERS = new String[0];
+
+    private final int status;
+    private final String contentType;
+    private final byte[] body;
+    private final String etag;
+    private final String gzipEtag;
+    // Cabeceras adicionales como pares nombre/valor
+    private final String[] headers;
+    // Variante gzip calculada en la primera petición que la acepta
+    private volatile byte[] gzipped;
+
+    private Response(int status, String contentType, byte[] body, String etag) {
+        this(status, contentType, body, etag, NO_HEADERS);
+    }
+
+    private Response(int status, String contentType, byte[] body, String etag, String[] headers) {
+        this.status = status;
+        this.contentType = contentType;
+        this.body = body;
+        this.etag = etag;
+        this.gzipEtag = etag == null ? null : ETags.gzipVariant(etag);
+        this.headers = headers;
+    }
+
+    /**
+     * Crea una respuesta JSON con su ETag
+     * @param json cuerpo JSON
+     * @return respuesta 200 con el cuerpo en UTF-8
+     */
+    public static Response json(String json) {
+        return json(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Crea una respuesta JSON con su ETag a partir de un cuerpo ya codificado
+     * @param body cuerpo JSON en UTF-8; no se copia
+     * @return respuesta 200 con el cuerpo
+     */
+    public static Response json(byte[] body) {
+        return new Response(200, APPLICATION_JSON, body, ETags.strong(body));
+    }
+
+    /**
+     * Crea una respuesta con un estado y tipo de contenido concretos, sin ETag
+     * @param status código de estado HTTP
+     * @param contentType tipo de contenido
+     * @param body cuerpo ya codificado; no se copia
+     * @return la respuesta
+     */
+    public static Response of(int status, String contentType, byte[] body) {
+        return new Response(status, contentType, body, null);
+    }
+
+    /**
+     * Crea una copia de la respuesta con una cabecera adicional. El cuerpo, el ETag y la
+     * variante gzip se comparten con la original.
+     * @param name nombre de la cabecera
+     * @param value valor de la cabecera
+     * @return la nueva respuesta
+     */
+    public Response withHeader(String name, String value) {
+        String[] extended = Arrays.copyOf(headers, headers.length + 2);
+        extended[headers.length] = name;
+        extended[headers.length + 1] = value;
+        Response copy = new Response(status, contentType, body, etag, extended);
+        copy.gzipped = gzipped;
+        return copy;
+    }
+
+    public int status() {
+        return status;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    /**
+     * @return el cuerpo compartido de la respuesta; no debe modificarse
+     */
+    public byte[] body() {
+        return body;
+    }
+
+    /**
+     * @return el ETag de la respuesta o null si no tiene
+     */
+    public String etag() {
+        return etag;
+    }
+
+    /**
+     * @return cabeceras adicionales como pares nombre/valor; no debe modificarse
+     */
+    String[] headers() {
+        return headers;
+    }
+
+    /**
+     * @return el ETag de la variante gzip o null si la respuesta no tiene ETag
+     */
+    String gzipEtag() {
+        return gzipEtag;
+    }
+
+    /**
+     * @return el cuerpo decodificado como texto
+     */
+    public String bodyAsString() {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Devuelve la variante gzip, comprimiéndola la primera vez
+     * @return bytes comprimidos, o null si gzip no reduce el tamaño
+     */
+    byte[] gzipped() {
+        byte[] compressed = gzipped;
+        if (compressed == null) {
+            compressed = ContentEncoding.gzip(body);
+            compressed = compressed.length < body.length ? compressed : NOT_COMPRESSIBLE;
+            gzipped = compressed;
+        }
+        return compressed == NOT_COMPRESSIBLE ? null : compressed;
+    }
+}
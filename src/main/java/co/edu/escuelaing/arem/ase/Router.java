@@ -0,0 +1,256 @@
+package co.edu.escuelaing.arem.ase;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Enrutador basado en un trie de segmentos. Los patrones ({@code /api/film/:id}) se compilan al
+ * registrarse en nodos literales y nodos {@code :param}; cada búsqueda recorre la ruta una sola
+ * vez, sin expresiones regulares ni arreglos intermedios. Los segmentos literales tienen
+ * prioridad sobre los parámetros.
+ *
+ * @param <H> tipo del manejador asociado a cada ruta
+ */
+final class Router<H> {
+    private final Node<H> root = new Node<>();
+    private int size;
+
+    /**
+     * Registra un manejador para un método y un patrón
+     * @param method método HTTP (GET, POST, ...)
+     * @param pattern patrón de ruta con segmentos {@code :param}
+     * @param handler manejador de la ruta
+     * @throws IllegalArgumentException si el patrón es inválido o ya está registrado para el método
+     */
+    synchronized void add(String method, String pattern, H handler) {
+        if (pattern == null || !pattern.startsWith("/")) {
+            throw new IllegalArgumentException(String.format("El patrón de ruta debe empezar por '/': %s", pattern));
+        }
+        Node<H> node = root;
+        int end = trimTrailingSlash(pattern);
+        int pos = 1;
+        while (pos <= end) {
+            int next = nextSlash(pattern, pos, end);
+            String segment = pattern.substring(pos, next);
+            node = segment.startsWith(":") ? node.paramChild(segment.substring(1), pattern) : node.literalChild(segment);
+            pos = next + 1;
+        }
+        node.setHandler(method.toUpperCase(Locale.ROOT), pattern, handler);
+        size++;
+    }
+
+    /**
+     * Busca la ruta que corresponde a una petición
+     * @param method método HTTP de la petición
+     * @param path ruta de la petición, sin query string
+     * @return la coincidencia, o null si ningún patrón corresponde a la ruta
+     */
+    Match<H> match(String method, String path) {
+        if (path == null || !path.startsWith("/")) {
+            return null;
+        }
+        int end = trimTrailingSlash(path);
+        Match<H> match = new Match<>();
+        Node<H> node = find(root, path, 1, end, match);
+        if (node == null) {
+            return null;
+        }
+        match.pattern = node.pattern;
+        match.handler = node.handlers.get(method);
+        match.allowedMethods = node.handlers.keySet();
+        return match;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Recorre el trie desde {@code pos}; al retroceder con éxito por un nodo parámetro
+     * registra su valor en la coincidencia.
+     */
+    private static <H> Node<H> find(Node<H> node, String path, int pos, int end, Match<H> match) {
+        if (pos > end) {
+            return node.pattern != null ? node : null;
+        }
+        int next = nextSlash(path, pos, end);
+
+        Node<H> literal = node.findLiteral(path, pos, next);
+        if (literal != null) {
+            Node<H> found = find(literal, path, next + 1, end, match);
+            if (found != null) {
+                return found;
+            }
+        }
+
+        if (node.param != null && next > pos) {
+            Node<H> found = find(node.param, path, next + 1, end, match);
+            if (found != null) {
+                match.putParam(node.paramName, path.substring(pos, next));
+                return found;
+            }
+        }
+        return null;
+    }
+
+    private static int nextSlash(String path, int from, int end) {
+        int slash = path.indexOf('/', from);
+        return slash < 0 || slash > end ? end + 1 : slash;
+    }
+
+    /**
+     * @return índice del último carácter significativo, ignorando una barra final
+     */
+    private static int trimTrailingSlash(String path) {
+        int end = path.length() - 1;
+        return end > 0 && path.charAt(end) == '/' ? end - 1 : end;
+    }
+
+    /**
+     * Resultado de una búsqueda en el enrutador
+     */
+    static final class Match<H> {
+        private H handler;
+        private String pattern;
+        private Set<String> allowedMethods;
+        private Map<String, String> params;
+
+        private void putParam(String name, String value) {
+            if (params == null) {
+                params = new HashMap<>(4);
+            }
+            params.put(name, value);
+        }
+
+        /**
+         * @return el manejador para el método pedido, o null si la ruta no admite ese método
+         */
+        H handler() {
+            return handler;
+        }
+
+        String pattern() {
+            return pattern;
+        }
+
+        Map<String, String> params() {
+            return params == null ? Collections.emptyMap() : params;
+        }
+
+        /**
+         * @return métodos registrados para la ruta, para la cabecera Allow de un 405
+         */
+        String allowHeader() {
+            return String.join(", ", new TreeSet<>(allowedMethods));
+        }
+    }
+
+    private static final class Node<H> {
+        // Tabla hash de direccionamiento abierto con los hijos literales
+        private String[] literalKeys = new String[0];
+        private int[] literalHashes = new int[0];
+        private Node<H>[] literalNodes = newNodes(0);
+        private int literalCount;
+        private Node<H> param;
+        private String paramName;
+        private String pattern;
+        private final Map<String, H> handlers = new HashMap<>(4);
+
+        private Node<H> literalChild(String segment) {
+            Node<H> existing = findLiteral(segment, 0, segment.length());
+            if (existing != null) {
+                return existing;
+            }
+            if ((literalCount + 1) * 2 > literalKeys.length) {
+                resize(Math.max(4, literalKeys.length * 2));
+            }
+            Node<H> child = new Node<>();
+            insert(segment, regionHash(segment, 0, segment.length()), child);
+            literalCount++;
+            return child;
+        }
+
+        private Node<H> paramChild(String name, String pattern) {
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException(String.format("Parámetro sin nombre en la ruta: %s", pattern));
+            }
+            if (param == null) {
+                param = new Node<>();
+                paramName = name;
+            } else if (!paramName.equals(name)) {
+                throw new IllegalArgumentException(String.format(
+                        "La ruta %s usa :%s donde otra ruta ya usa :%s", pattern, name, paramName));
+            }
+            return param;
+        }
+
+        private void setHandler(String method, String routePattern, H handler) {
+            if (handlers.containsKey(method)) {
+                throw new IllegalArgumentException(String.format("Ruta %s %s ya registrada", method, routePattern));
+            }
+            pattern = pattern == null ? routePattern : pattern;
+            handlers.put(method, handler);
+        }
+
+        private Node<H> findLiteral(String path, int from, int to) {
+            if (literalCount == 0) {
+                return null;
+            }
+            int hash = regionHash(path, from, to);
+            int mask = literalKeys.length - 1;
+            int length = to - from;
+            for (int i = hash & mask; literalKeys[i] != null; i = (i + 1) & mask) {
+                String key = literalKeys[i];
+                if (literalHashes[i] == hash && key.length() == length && path.regionMatches(from, key, 0, length)) {
+                    return literalNodes[i];
+                }
+            }
+            return null;
+        }
+
+        private void resize(int capacity) {
+            String[] oldKeys = literalKeys;
+            int[] oldHashes = literalHashes;
+            Node<H>[] oldNodes = literalNodes;
+            literalKeys = new String[capacity];
+            literalHashes = new int[capacity];
+            literalNodes = newNodes(capacity);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    insert(oldKeys[i], oldHashes[i], oldNodes[i]);
+                }
+            }
+        }
+
+        private void insert(String key, int hash, Node<H> node) {
+            int mask = literalKeys.length - 1;
+            int i = hash & mask;
+            while (literalKeys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            literalKeys[i] = key;
+            literalHashes[i] = hash;
+            literalNodes[i] = node;
+        }
+
+        /**
+         * Hash de un tramo de la ruta, equivalente a {@code substring(from, to).hashCode()} sin crear el String
+         */
+        private static int regionHash(String path, int from, int to) {
+            int hash = 0;
+            for (int i = from; i < to; i++) {
+                hash = 31 * hash + path.charAt(i);
+            }
+            return hash ^ (hash >>> 16);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <H> Node<H>[] newNodes(int capacity) {
+            return (Node<H>[]) new Node<?>[capacity];
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package co.edu.escuelaing.arem.ase;
+
+import co.edu.escuelaing.arem.ase.metrics.Metrics;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Crea el executor con el que el servidor HTTP atiende cada petición.
+ * <ul>
+ *     <li>{@code inline}: la petición se atiende en el hilo despachador del JDK (comportamiento original)
+ *     o en el bucle de eventos del motor NIO.</li>
+ *     <li>{@code pool}: pool acotado de hilos de plataforma con cola limitada y política de rechazo.</li>
+ *     <li>{@code virtual}: un hilo virtual por petición (requiere Java 21; si no, se usa {@code pool}).</li>
+ * </ul>
+ */
+final class ServerExecutors {
+    static final String MODE_KEY = "starwars.server.executor";
+    static final String THREADS_KEY = "starwars.server.threads";
+    static final String QUEUE_KEY = "starwars.server.queue";
+    static final String REJECTION_KEY = "starwars.server.rejection";
+
+    private static final Logger logger = Logger.getLogger(ServerExecutors.class.getName());
+    private static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
+    enum Mode {
+        INLINE, POOL, VIRTUAL
+    }
+
+    private ServerExecutors() {
+    }
+
+    /**
+     * Construye el executor según la configuración
+     * @return el executor a registrar en el servidor, o null para el modo inline
+     */
+    static ExecutorService fromConfig() {
+        Mode mode = parseMode(AppConfig.getString(MODE_KEY, Mode.POOL.name()));
+        switch (mode) {
+            case INLINE:
+                logger.info("Executor del servidor: inline (hilo despachador)");
+                return null;
+            case VIRTUAL:
+                ExecutorService virtual = newVirtualThreadExecutor();
+                if (virtual != null) {
+                    logger.info("Executor del servidor: un hilo virtual por petición");
+                    return virtual;
+                }
+                logger.warning("Los hilos virtuales requieren Java 21; se usará el pool acotado");
+                return newBoundedPool();
+            case POOL:
+            default:
+                return newBoundedPool();
+        }
+    }
+
+    static Mode parseMode(String value) {
+        try {
+            return Mode.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Modo de executor no soportado en %s: %s", MODE_KEY, value), e);
+        }
+    }
+
+    private static ExecutorService newBoundedPool() {
+        int threads = AppConfig.getInt(THREADS_KEY, Runtime.getRuntime().availableProcessors() * 4);
+        int queueCapacity = AppConfig.getInt(QUEUE_KEY, DEFAULT_QUEUE_CAPACITY);
+        if (threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("El número de hilos y la capacidad de la cola deben ser positivos");
+        }
+        String rejection = AppConfig.getString(REJECTION_KEY, "abort");
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), namedDaemonThreads("http-worker-"),
+                rejectionPolicy(rejection));
+        pool.allowCoreThreadTimeOut(true);
+        Metrics.gauge("starwars_executor_queue_depth", "Peticiones en espera en la cola del pool de trabajo",
+                () -> pool.getQueue().size());
+        Metrics.gauge("starwars_executor_active_threads", "Hilos del pool atendiendo una petición",
+                pool::getActiveCount);
+
+        if (logger.isLoggable(Level.INFO)) {
+            logger.info(String.format("Executor del servidor: pool de %d hilos, cola de %d, rechazo %s",
+                    threads, queueCapacity, rejection));
+        }
+        return pool;
+    }
+
+    /**
+     * Con {@code abort} la petición rechazada lanza una excepción y el servidor cierra la conexión
+     * de inmediato; con {@code caller-runs} se atiende en el hilo despachador, frenando la aceptación.
+     */
+    private static RejectedExecutionHandler rejectionPolicy(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "abort":
+                return new ThreadPoolExecutor.AbortPolicy();
+            case "caller-runs":
+                return new ThreadPoolExecutor.CallerRunsPolicy();
+            default:
+                throw new IllegalArgumentException(String.format("Política de rechazo no soportada en %s: %s", REJECTION_KEY, name));
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory namedDaemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
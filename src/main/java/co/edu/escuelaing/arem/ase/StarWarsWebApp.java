@@ -1,15 +1,23 @@
 package co.edu.escuelaing.arem.ase;
 
 import co.edu.escuelaing.arem.ase.controller.MovieController;
-import com.sun.net.httpserver.HttpExchange;
-import com.sun.net.httpserver.HttpServer;
+import co.edu.escuelaing.arem.ase.logging.AsyncLogHandler;
+import co.edu.escuelaing.arem.ase.logging.LogRateLimiter;
+import co.edu.escuelaing.arem.ase.metrics.Metrics;
+import co.edu.escuelaing.arem.ase.server.JdkServerEngine;
+import co.edu.escuelaing.arem.ase.server.NioServerEngine;
+import co.edu.escuelaing.arem.ase.server.ServerEngine;
+import co.edu.escuelaing.arem.ase.server.ServerExchange;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.net.InetSocketAddress;
-import java.nio.file.Files;
+import java.net.URLDecoder;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -17,28 +25,52 @@ import java.util.logging.Logger;
  * Aplicación web para el servicio de películas de Star Wars
  */
 public class StarWarsWebApp {
-    private static final Map<String, HttpHandler> GET_ROUTES = new HashMap<>();
+    private static final Router<HttpHandler> ROUTER = new Router<>();
     private static final Logger logger = Logger.getLogger(StarWarsWebApp.class.getName());
+    private static final LogRateLimiter NOT_FOUND_LOG_LIMIT = LogRateLimiter.perSecond(5);
     private static final int DEFAULT_BACKLOG = 0;
+    private static final String BACKLOG_KEY = "starwars.server.backlog";
+    private static final String TCP_NODELAY_KEY = "starwars.server.tcp-nodelay";
+    private static final String IDLE_TIMEOUT_KEY = "starwars.server.idle-timeout-s";
+    private static final String MAX_IDLE_CONNECTIONS_KEY = "starwars.server.max-idle-connections";
+    private static final int DEFAULT_IDLE_TIMEOUT_S = 30;
+    private static final String ENGINE_KEY = "starwars.server.engine";
+    private static final String EVENT_LOOPS_KEY = "starwars.server.event-loops";
+    private static final String JDK_ENGINE = "jdk";
+    private static final String NIO_ENGINE = "nio";
     private static String staticFilesPath = "target/classes/public";
+    private static volatile StaticAssetCache assetCache;
+    private static volatile AdmissionControl admission;
     // Constantes para literales de strings comunes
     private static final String CONTENT_TYPE_HEADER = "Content-Type";
-    private static final String APPLICATION_JSON = "application/json";
     private static final String ERROR_PREFIX = "{\"error\": \"";
     private static final String ERROR_SUFFIX = "\"}";
+    // Respuestas de error precodificadas, con cuerpo y longitud exacta
+    private static final Response NOT_FOUND_RESPONSE = errorResponse(404, "Not Found");
+    private static final Response METHOD_NOT_ALLOWED_RESPONSE = errorResponse(405, "Method Not Allowed");
+    private static final Response INTERNAL_ERROR_RESPONSE = errorResponse(500, "Internal Server Error");
     private static final String INDEX_HTML = "/index.html";
+    private static final String ETAG_HEADER = "ETag";
+    private static final String LAST_MODIFIED_HEADER = "Last-Modified";
+    private static final String CACHE_CONTROL_HEADER = "Cache-Control";
+    // Los clientes pueden guardar los archivos, pero deben revalidarlos con ETag / Last-Modified
+    private static final String STATIC_CACHE_CONTROL = "public, no-cache";
+    // Las respuestas dinámicas más pequeñas no compensan el coste de comprimir
+    private static final int COMPRESSION_MIN_SIZE = AppConfig.getInt("starwars.compression.min-size", 1024);
+    // Los archivos de este tamaño o mayores se mapean en memoria en lugar de copiarse al heap
+    private static final int MAPPED_FILE_THRESHOLD = AppConfig.getInt("starwars.static.mapped-threshold", 256 * 1024);
     // Constantes para los tipos MIME
-    private static final String MIME_TEXT_HTML = "text/html";
-    private static final String MIME_TEXT_CSS = "text/css";
-    private static final String MIME_APPLICATION_JS = "application/javascript";
-    private static final String MIME_APPLICATION_JSON = "application/json";
+    private static final String MIME_TEXT_HTML = "text/html; charset=utf-8";
+    private static final String MIME_TEXT_CSS = "text/css; charset=utf-8";
+    private static final String MIME_APPLICATION_JS = "application/javascript; charset=utf-8";
+    private static final String MIME_APPLICATION_JSON = "application/json; charset=utf-8";
     private static final String MIME_IMAGE_PNG = "image/png";
     private static final String MIME_IMAGE_JPEG = "image/jpeg";
     private static final String MIME_IMAGE_WEBP = "image/webp";
     private static final String MIME_IMAGE_GIF = "image/gif";
     private static final String MIME_IMAGE_SVG = "image/svg+xml";
     private static final String MIME_IMAGE_ICON = "image/x-icon";
-    private static final String MIME_TEXT_PLAIN = "text/plain";
+    private static final String MIME_TEXT_PLAIN = "text/plain; charset=utf-8";
 
     public static byte[] getStaticFile(String path) throws IOException {
         if (path == null || path.isEmpty()) {
@@ -51,24 +83,22 @@ public class StarWarsWebApp {
         try {
             Path filePath = buildFilePath(staticFilesPath, path);
 
-            if (logger.isLoggable(Level.INFO)) {
-                logger.info(String.format("Intentando servir archivo: %s", filePath));
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "Intentando servir archivo: {0}", filePath);
             }
 
-            if (!Files.exists(filePath)) {
-                if (logger.isLoggable(Level.WARNING)) {
-                    logger.warning(String.format("Archivo no encontrado: %s", filePath));
-                }
+            StaticAssetCache.Asset asset = assetCache().get(filePath);
+            if (asset == null) {
+                logNotFound(filePath);
                 return new byte[0];
             }
 
-            byte[] fileBytes = Files.readAllBytes(filePath);
-
-            if (logger.isLoggable(Level.INFO)) {
-                logger.info(String.format("Sirviendo archivo: %s", path));
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "Sirviendo archivo: {0}", path);
             }
 
-            return fileBytes;
+            // Copia defensiva: los bytes en caché se comparten entre peticiones
+            return asset.toByteArray();
 
         } catch (IOException e) {
             if (logger.isLoggable(Level.WARNING)) {
@@ -78,9 +108,13 @@ public class StarWarsWebApp {
         }
     }
 
+    /**
+     * Manejador asíncrono de una ruta. La respuesta se envía cuando el futuro se completa,
+     * así que ningún hilo del servidor queda bloqueado mientras se espera a servicios externos.
+     */
     @FunctionalInterface
     interface HttpHandler {
-        String handle(Map<String, String> params);
+        CompletableFuture<Response> handle(Map<String, String> params);
     }
 
     /**
@@ -88,15 +122,25 @@ public class StarWarsWebApp {
      * @param args argumentos de línea de comandos (no utilizados)
      */
     public static void main(String[] args) {
+        AsyncLogHandler.installFromConfig();
         setupRoutes();
+        MovieController.warmUp();
         startServer(8080);
     }
 
     /**
-     * Configura las rutas de la aplicación
+     * Configura las rutas de la aplicación. Solo tiene efecto la primera vez que se llama.
      */
-    private static void setupRoutes() {
-        get("/api/film/:id", params -> MovieController.getMovie(params.get("id")));
+    static synchronized void setupRoutes() {
+        if (ROUTER.size() > 0) {
+            return;
+        }
+        get("/api/film/:id", params -> MovieController.getMovieAsync(params.get("id")));
+        get("/api/film/:id/details", params -> MovieController.getMovieDetailsAsync(params.get("id")));
+        get("/api/films", params -> MovieController.getMoviesAsync(params.get("ids")));
+        get("/api/search", params -> MovieController.searchMoviesAsync(params.get("q"), params.get("limit")));
+        get("/metrics", params -> CompletableFuture.completedFuture(
+                Response.of(200, Metrics.CONTENT_TYPE, Metrics.scrape().getBytes(StandardCharsets.UTF_8))));
         staticfiles(staticFilesPath);
         logger.info("Rutas configuradas correctamente");
     }
@@ -107,9 +151,47 @@ public class StarWarsWebApp {
      * @param handler manejador de la ruta
      */
     public static void get(String path, HttpHandler handler) {
-        GET_ROUTES.put(path, handler);
+        route("GET", path, handler);
+    }
+
+    /**
+     * Registra una ruta POST
+     * @param path ruta a registrar
+     * @param handler manejador de la ruta
+     */
+    public static void post(String path, HttpHandler handler) {
+        route("POST", path, handler);
+    }
+
+    /**
+     * Registra una ruta PUT
+     * @param path ruta a registrar
+     * @param handler manejador de la ruta
+     */
+    public static void put(String path, HttpHandler handler) {
+        route("PUT", path, handler);
+    }
+
+    /**
+     * Registra una ruta DELETE
+     * @param path ruta a registrar
+     * @param handler manejador de la ruta
+     */
+    public static void delete(String path, HttpHandler handler) {
+        route("DELETE", path, handler);
+    }
+
+    /**
+     * Registra una ruta para un método HTTP cualquiera. El patrón se compila en el enrutador
+     * en este momento, no en cada petición.
+     * @param method método HTTP
+     * @param path ruta a registrar, con segmentos {@code :param}
+     * @param handler manejador de la ruta
+     */
+    public static void route(String method, String path, HttpHandler handler) {
+        ROUTER.add(method, path, handler);
         if (logger.isLoggable(Level.INFO)) {
-            logger.info(String.format("Ruta GET registrada: %s", path));
+            logger.info(String.format("Ruta %s registrada: %s", method, path));
         }
     }
 
@@ -121,7 +203,11 @@ public class StarWarsWebApp {
         if (path == null || path.trim().isEmpty()) {
             throw new IllegalArgumentException("La ruta de archivos estáticos no puede estar vacía");
         }
-        staticFilesPath = path;
+        synchronized (StarWarsWebApp.class) {
+            staticFilesPath = path;
+            closeAssetCache();
+            assetCache = new StaticAssetCache(Path.of(path), MAPPED_FILE_THRESHOLD);
+        }
 
         if (logger.isLoggable(Level.INFO)) {
             logger.info(String.format("Archivos estáticos configurados en: %s", path));
@@ -129,19 +215,20 @@ public class StarWarsWebApp {
     }
 
     /**
-     * Inicia el servidor HTTP
-     * @param port puerto en el que escuchará el servidor
+     * Inicia el servidor HTTP con el motor configurado en {@code starwars.server.engine}
+     * @param port puerto en el que escuchará el servidor (0 para uno libre)
+     * @return el motor iniciado, para poder detenerlo cuando se embebe en pruebas o benchmarks
      */
-    private static void startServer(int port) {
+    static ServerEngine startServer(int port) {
         try {
-            HttpServer server = HttpServer.create(new InetSocketAddress(port), DEFAULT_BACKLOG);
-            server.createContext("/", StarWarsWebApp::handleRequest);
-            server.setExecutor(null);
-            server.start();
+            ServerEngine engine = createEngine();
+            admission = AdmissionControl.fromConfig();
+            engine.start(new InetSocketAddress(port), StarWarsWebApp::handleRequest);
 
             if (logger.isLoggable(Level.INFO)) {
-                logger.info(String.format("Servidor iniciado en el puerto %d", port));
+                logger.info(String.format("Servidor iniciado en el puerto %d (motor %s)", engine.port(), engine.name()));
             }
+            return engine;
         } catch (IOException e) {
             if (logger.isLoggable(Level.SEVERE)) {
                 logger.log(Level.SEVERE, "Error al iniciar el servidor", e);
@@ -150,6 +237,47 @@ public class StarWarsWebApp {
         }
     }
 
+    /**
+     * Crea el motor HTTP: {@code jdk} (por defecto) usa el servidor incluido en el JDK y {@code nio}
+     * un bucle de eventos por núcleo; ambos atienden las peticiones en el executor de {@link ServerExecutors}
+     */
+    private static ServerEngine createEngine() {
+        int backlog = AppConfig.getInt(BACKLOG_KEY, DEFAULT_BACKLOG);
+        String engine = AppConfig.getString(ENGINE_KEY, JDK_ENGINE);
+        if (NIO_ENGINE.equalsIgnoreCase(engine)) {
+            int eventLoops = AppConfig.getInt(EVENT_LOOPS_KEY, Runtime.getRuntime().availableProcessors());
+            Duration idleTimeout = Duration.ofSeconds(AppConfig.getInt(IDLE_TIMEOUT_KEY, DEFAULT_IDLE_TIMEOUT_S));
+            return new NioServerEngine(eventLoops, backlog, idleTimeout, ServerExecutors.fromConfig());
+        }
+        if (!JDK_ENGINE.equalsIgnoreCase(engine)) {
+            throw new ServerInitializationException(String.format("Motor de servidor desconocido: %s", engine));
+        }
+        configureConnections();
+        return new JdkServerEngine(backlog, ServerExecutors.fromConfig());
+    }
+
+
+    /**
+     * Ajusta las conexiones del servidor del JDK, que solo se configura con propiedades del
+     * sistema leídas al crear el primer {@code HttpServer} de la JVM; quien embeba otros servidores
+     * debe llamarlo antes. Las propiedades fijadas explícitamente en la línea de comandos tienen prioridad.
+     * <ul>
+     *     <li>TCP_NODELAY: sin él, Nagle retiene el cuerpo que sigue a las cabeceras hasta el ACK
+     *     retardado del cliente y cada respuesta keep-alive tarda decenas de milisegundos.</li>
+     *     <li>Tiempo y número máximo de conexiones keep-alive ociosas.</li>
+     * </ul>
+     */
+    static void configureConnections() {
+        setDefaultProperty("sun.net.httpserver.nodelay", AppConfig.getString(TCP_NODELAY_KEY, "true"));
+        setDefaultProperty("sun.net.httpserver.idleInterval", Integer.toString(AppConfig.getInt(IDLE_TIMEOUT_KEY, DEFAULT_IDLE_TIMEOUT_S)));
+        setDefaultProperty("sun.net.httpserver.maxIdleConnections", Integer.toString(AppConfig.getInt(MAX_IDLE_CONNECTIONS_KEY, 200)));
+    }
+
+    private static void setDefaultProperty(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
 
     /**
      * Excepción que se lanza cuando hay problemas al iniciar o configurar el servidor
@@ -173,18 +301,33 @@ public class StarWarsWebApp {
         }
     }
     /**
-     * Maneja las peticiones HTTP
+     * Maneja las peticiones HTTP. El control de admisión se aplica antes de enrutar, para que
+     * una avalancha de peticiones se rechace sin ocupar más que el hilo que la lee.
      */
-    private static void handleRequest(HttpExchange exchange) throws IOException {
+    private static void handleRequest(ServerExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        AdmissionControl control = admission;
+        Response rejection = control.admit(exchange.remoteAddress());
+        if (rejection != null) {
+            reject(exchange, rejection, start);
+            return;
+        }
+        String metricsRoute = HttpMetrics.UNMATCHED_ROUTE;
+        boolean pending = false;
         try {
-            String path = exchange.getRequestURI().getPath();
-            String method = exchange.getRequestMethod();
+            String path = exchange.path();
+            String method = exchange.method();
 
-            if (logger.isLoggable(Level.INFO)) {
-                logger.info(String.format("Recibida petición: %s %s", method, path));
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "Recibida petición: {0} {1}", new Object[]{method, path});
             }
 
-            if ("GET".equals(method)) {
+            Router.Match<HttpHandler> route = ROUTER.match(method, path);
+            if (route != null) {
+                metricsRoute = route.pattern();
+                pending = handleDynamicRoute(exchange, route, start, control);
+            } else if ("GET".equals(method)) {
+                metricsRoute = HttpMetrics.STATIC_ROUTE;
                 handleGetRequest(exchange, path);
             } else {
                 sendMethodNotAllowedResponse(exchange);
@@ -193,24 +336,32 @@ public class StarWarsWebApp {
             if (logger.isLoggable(Level.SEVERE)) {
                 logger.log(Level.SEVERE, "Error al procesar la petición", e);
             }
-            sendErrorResponse(exchange, "Internal Server Error");
+            sendResponse(exchange, INTERNAL_ERROR_RESPONSE);
+        } finally {
+            // Las rutas dinámicas cierran el intercambio cuando su futuro se completa
+            if (!pending) {
+                exchange.close();
+                control.release();
+                HttpMetrics.record(metricsRoute, exchange.responseCode(), start);
+            }
+        }
+    }
+
+    private static void reject(ServerExchange exchange, Response rejection, long start) {
+        try {
+            sendResponse(exchange, rejection);
+        } catch (IOException e) {
+            // El cliente ya no espera la respuesta
         } finally {
             exchange.close();
+            HttpMetrics.record(HttpMetrics.REJECTED_ROUTE, exchange.responseCode(), start);
         }
     }
 
     /**
-     * Maneja las peticiones GET
+     * Maneja las peticiones GET que no corresponden a ninguna ruta dinámica
      */
-    private static void handleGetRequest(HttpExchange exchange, String path) throws IOException {
-        // Primero intentamos rutas dinámicas
-        String response = handleDynamicRoute(path);
-        if (response != null) {
-            sendResponse(exchange, response);
-            return;
-        }
-
-        // Luego intentamos servir archivos estáticos
+    private static void handleGetRequest(ServerExchange exchange, String path) throws IOException {
         if (serveStaticFile(exchange, path)) {
             return;
         }
@@ -219,79 +370,137 @@ public class StarWarsWebApp {
     }
 
     /**
-     * Procesa rutas dinámicas
+     * Ejecuta el manejador de una ruta dinámica
+     * @return true si la respuesta quedó pendiente del futuro del manejador
      */
-    private static String handleDynamicRoute(String path) {
-        return GET_ROUTES.entrySet().stream()
-                .filter(route -> matchesRoute(route.getKey(), path))
-                .findFirst()
-                .map(route -> route.getValue().handle(extractParams(route.getKey(), path)))
-                .orElse(null);
+    private static boolean handleDynamicRoute(ServerExchange exchange, Router.Match<HttpHandler> route, long start,
+            AdmissionControl control) throws IOException {
+        HttpHandler handler = route.handler();
+        if (handler == null) {
+            exchange.setResponseHeader("Allow", route.allowHeader());
+            sendMethodNotAllowedResponse(exchange);
+            return false;
+        }
+        Map<String, String> params = withQueryParameters(route.params(), exchange.rawQuery());
+        handler.handle(params).whenComplete((response, error) ->
+                completeExchange(exchange, route.pattern(), start, control, response, error));
+        return true;
     }
 
     /**
-     * Verifica si una ruta coincide con un patrón
+     * Añade los parámetros de la query string a los de la ruta. Si un nombre coincide prevalece
+     * el de la ruta, y si se repite en la query, su primera aparición; los pares mal codificados
+     * se ignoran.
      */
-    private static boolean matchesRoute(String routePattern, String actualPath) {
-        String[] routeParts = routePattern.split("/");
-        String[] pathParts = actualPath.split("/");
-
-        if (routeParts.length != pathParts.length) return false;
-
-        for (int i = 0; i < routeParts.length; i++) {
-            if (!routeParts[i].startsWith(":") && !routeParts[i].equals(pathParts[i])) {
-                return false;
+    static Map<String, String> withQueryParameters(Map<String, String> pathParams, String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return pathParams;
+        }
+        Map<String, String> params = new HashMap<>(pathParams);
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int separator = pair.indexOf('=');
+            try {
+                String name = URLDecoder.decode(separator < 0 ? pair : pair.substring(0, separator), StandardCharsets.UTF_8);
+                String value = separator < 0 ? "" : URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);
+                params.putIfAbsent(name, value);
+            } catch (IllegalArgumentException e) {
+                // Secuencia % inválida: el par se descarta
             }
         }
-        return true;
+        return params;
     }
 
     /**
-     * Extrae parámetros de una ruta
+     * Envía la respuesta de una ruta dinámica cuando su futuro se completa y cierra el intercambio
      */
-    private static Map<String, String> extractParams(String routePattern, String actualPath) {
-        Map<String, String> params = new HashMap<>();
-        String[] routeParts = routePattern.split("/");
-        String[] pathParts = actualPath.split("/");
-
-        for (int i = 0; i < routeParts.length; i++) {
-            if (routeParts[i].startsWith(":")) {
-                params.put(routeParts[i].substring(1), pathParts[i]);
+    private static void completeExchange(ServerExchange exchange, String pattern, long start, AdmissionControl control,
+            Response response, Throwable error) {
+        try {
+            if (error != null) {
+                if (logger.isLoggable(Level.SEVERE)) {
+                    logger.log(Level.SEVERE, "Error al procesar la petición", error);
+                }
+                sendResponse(exchange, INTERNAL_ERROR_RESPONSE);
+            } else {
+                sendResponse(exchange, response);
             }
+        } catch (IOException e) {
+            if (logger.isLoggable(Level.WARNING)) {
+                logger.log(Level.WARNING, "Error al enviar la respuesta", e);
+            }
+        } finally {
+            exchange.close();
+            control.release();
+            HttpMetrics.record(pattern, exchange.responseCode(), start);
         }
-        return params;
     }
 
     /**
      * Sirve archivos estáticos
      */
-    private static boolean serveStaticFile(HttpExchange exchange, String path) {
+    private static boolean serveStaticFile(ServerExchange exchange, String path) {
         try {
             path = path.equals("/") ? INDEX_HTML : path;
             Path filePath = buildFilePath(staticFilesPath, path);
 
-            if (logger.isLoggable(Level.INFO)) {
-                logger.info(String.format("Intentando servir archivo: %s", filePath));
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "Intentando servir archivo: {0}", filePath);
             }
 
-            if (!Files.exists(filePath)) {
-                if (logger.isLoggable(Level.WARNING)) {
-                    logger.warning(String.format("Archivo no encontrado: %s", filePath));
-                }
+            StaticAssetCache.Asset asset = assetCache().get(filePath);
+            if (asset == null) {
+                logNotFound(filePath);
                 return false;
             }
 
-            byte[] fileBytes = Files.readAllBytes(filePath);
             String contentType = getContentType(path);
+            // Un Range válido se atiende sobre la representación sin comprimir
+            ByteRange range = asset.matchesIfRange(exchange.requestHeader(ByteRange.IF_RANGE_HEADER))
+                    ? ByteRange.parse(exchange.requestHeader(ByteRange.RANGE_HEADER), asset.length()) : null;
+            boolean compressible = ContentEncoding.isCompressible(contentType);
+            byte[] gzipped = range == null && compressible
+                    && ContentEncoding.acceptsGzip(exchange.requestHeader(ContentEncoding.ACCEPT_ENCODING_HEADER))
+                    ? asset.gzipped() : null;
+
+            if (compressible) {
+                exchange.setResponseHeader(ContentEncoding.VARY_HEADER, ContentEncoding.ACCEPT_ENCODING_HEADER);
+            }
+            exchange.setResponseHeader(ETAG_HEADER, gzipped != null ? asset.gzipEtag() : asset.etag());
+            exchange.setResponseHeader(LAST_MODIFIED_HEADER, asset.lastModified());
+            exchange.setResponseHeader(CACHE_CONTROL_HEADER, STATIC_CACHE_CONTROL);
+            exchange.setResponseHeader(ByteRange.ACCEPT_RANGES_HEADER, ByteRange.BYTES_UNIT);
+
+            if (asset.isNotModified(exchange.requestHeader("If-None-Match"), exchange.requestHeader("If-Modified-Since"))) {
+                sendHeadersOnly(exchange, 304);
+                return true;
+            }
 
-            if (logger.isLoggable(Level.INFO)) {
-                logger.info(String.format("Sirviendo archivo: %s con Content-Type: %s", path, contentType));
+            if (range == ByteRange.UNSATISFIABLE) {
+                exchange.setResponseHeader(ByteRange.CONTENT_RANGE_HEADER, range.contentRange(asset.length()));
+                sendHeadersOnly(exchange, 416);
+                return true;
+            }
+
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "Sirviendo archivo: {0} con Content-Type: {1}", new Object[]{path, contentType});
             }
 
-            exchange.getResponseHeaders().set(CONTENT_TYPE_HEADER, contentType);
-            exchange.sendResponseHeaders(200, fileBytes.length);
-            exchange.getResponseBody().write(fileBytes);
-            exchange.getResponseBody().close();
+            exchange.setResponseHeader(CONTENT_TYPE_HEADER, contentType);
+            if (gzipped != null) {
+                exchange.setResponseHeader(ContentEncoding.CONTENT_ENCODING_HEADER, ContentEncoding.GZIP);
+                exchange.sendResponseHeaders(200, gzipped.length);
+                exchange.responseBody().write(gzipped);
+            } else if (range != null) {
+                exchange.setResponseHeader(ByteRange.CONTENT_RANGE_HEADER, range.contentRange(asset.length()));
+                exchange.sendResponseHeaders(206, range.length());
+                asset.writeTo(exchange.responseBody(), range.start(), range.length());
+            } else {
+                exchange.sendResponseHeaders(200, asset.length());
+                asset.writeTo(exchange.responseBody(), 0, asset.length());
+            }
             return true;
 
         } catch (IOException e) {
@@ -303,40 +512,108 @@ public class StarWarsWebApp {
     }
 
     /**
-     * Envía una respuesta HTTP
+     * Envía una respuesta HTTP. El cuerpo ya viene codificado, así que solo se escribe en el socket.
+     */
+    private static void sendResponse(ServerExchange exchange, Response response) throws IOException {
+        byte[] gzipped = response.body().length >= COMPRESSION_MIN_SIZE
+                && ContentEncoding.acceptsGzip(exchange.requestHeader(ContentEncoding.ACCEPT_ENCODING_HEADER))
+                ? response.gzipped() : null;
+        exchange.setResponseHeader(CONTENT_TYPE_HEADER, response.contentType());
+        exchange.setResponseHeader(ContentEncoding.VARY_HEADER, ContentEncoding.ACCEPT_ENCODING_HEADER);
+        String[] extraHeaders = response.headers();
+        for (int i = 0; i < extraHeaders.length; i += 2) {
+            exchange.setResponseHeader(extraHeaders[i], extraHeaders[i + 1]);
+        }
+
+        if (response.etag() != null) {
+            exchange.setResponseHeader(ETAG_HEADER, gzipped != null ? response.gzipEtag() : response.etag());
+            String ifNoneMatch = exchange.requestHeader("If-None-Match");
+            if (ifNoneMatch != null && (ETags.matchesIfNoneMatch(ifNoneMatch, response.etag())
+                    || ETags.matchesIfNoneMatch(ifNoneMatch, response.gzipEtag()))) {
+                sendHeadersOnly(exchange, 304);
+                return;
+            }
+        }
+
+        byte[] responseBytes = response.body();
+        if (gzipped != null) {
+            responseBytes = gzipped;
+            exchange.setResponseHeader(ContentEncoding.CONTENT_ENCODING_HEADER, ContentEncoding.GZIP);
+        }
+        exchange.sendResponseHeaders(response.status(), responseBytes.length);
+        exchange.responseBody().write(responseBytes);
+    }
+
+    /**
+     * Envía una respuesta 404 Not Found
      */
-    private static void sendResponse(HttpExchange exchange, String response) throws IOException {
-        byte[] responseBytes = response.getBytes();
-        exchange.getResponseHeaders().set(CONTENT_TYPE_HEADER, getContentType(exchange.getRequestURI().getPath()));
-        exchange.sendResponseHeaders(200, responseBytes.length);
-        exchange.getResponseBody().write(responseBytes);
-        exchange.getResponseBody().close();
+    private static void sendNotFoundResponse(ServerExchange exchange) throws IOException {
+        sendResponse(exchange, NOT_FOUND_RESPONSE);
     }
 
     /**
-     * Envía una respuesta de error
+     * Envía una respuesta 405 Method Not Allowed
      */
-    private static void sendErrorResponse(HttpExchange exchange, String message) throws IOException {
-        String response = ERROR_PREFIX + message + ERROR_SUFFIX;
-        exchange.getResponseHeaders().set(CONTENT_TYPE_HEADER, APPLICATION_JSON);
-        byte[] responseBytes = response.getBytes();
-        exchange.sendResponseHeaders(500, responseBytes.length);
-        exchange.getResponseBody().write(responseBytes);
-        exchange.getResponseBody().close();
+    private static void sendMethodNotAllowedResponse(ServerExchange exchange) throws IOException {
+        sendResponse(exchange, METHOD_NOT_ALLOWED_RESPONSE);
+    }
+
+    static Response errorResponse(int status, String message) {
+        return Response.of(status, Response.APPLICATION_JSON,
+                (ERROR_PREFIX + message + ERROR_SUFFIX).getBytes(StandardCharsets.UTF_8));
     }
 
     /**
-     * Envía una respuesta 404 Not Found
+     * Devuelve la caché de archivos estáticos, creándola para la ruta por defecto si aún no existe
+     */
+    private static StaticAssetCache assetCache() {
+        StaticAssetCache cache = assetCache;
+        if (cache != null) {
+            return cache;
+        }
+        synchronized (StarWarsWebApp.class) {
+            if (assetCache == null) {
+                assetCache = new StaticAssetCache(Path.of(staticFilesPath), MAPPED_FILE_THRESHOLD);
+            }
+            return assetCache;
+        }
+    }
+
+    private static void closeAssetCache() {
+        if (assetCache == null) {
+            return;
+        }
+        try {
+            assetCache.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error al cerrar la caché de archivos estáticos", e);
+        }
+    }
+
+    /**
+     * Envía una respuesta sin cuerpo
      */
-    private static void sendNotFoundResponse(HttpExchange exchange) throws IOException {
-        exchange.sendResponseHeaders(404, -1);
+    private static void sendHeadersOnly(ServerExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
     }
 
     /**
-     * Envía una respuesta 405 Method Not Allowed
+     * Avisa de un archivo inexistente. Cualquier cliente puede provocar este aviso en cada
+     * petición, así que se limita a unos pocos por segundo.
      */
-    private static void sendMethodNotAllowedResponse(HttpExchange exchange) throws IOException {
-        exchange.sendResponseHeaders(405, -1);
+    private static void logNotFound(Path filePath) {
+        if (!logger.isLoggable(Level.WARNING)) {
+            return;
+        }
+        long suppressed = NOT_FOUND_LOG_LIMIT.tryAcquire();
+        if (suppressed == LogRateLimiter.SUPPRESSED) {
+            return;
+        }
+        if (suppressed > 0) {
+            logger.log(Level.WARNING, "Archivo no encontrado: {0} ({1} avisos similares omitidos)", new Object[]{filePath, suppressed});
+        } else {
+            logger.log(Level.WARNING, "Archivo no encontrado: {0}", filePath);
+        }
     }
 
     private static Path buildFilePath(String basePath, String filePath) {
@@ -351,7 +628,7 @@ public class StarWarsWebApp {
     /**
      * Determina el tipo de contenido basado en la extensión del archivo
      */
-    private static String getContentType(String path) {
+    static String getContentType(String path) {
         if (path.endsWith(".html")) return MIME_TEXT_HTML;
         if (path.endsWith(".css")) return MIME_TEXT_CSS;
         if (path.endsWith(".js")) return MIME_APPLICATION_JS;
@@ -0,0 +1,349 @@
+package co.edu.escuelaing.arem.ase;
+
+import co.edu.escuelaing.arem.ase.metrics.CacheMetrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Caché en memoria de los archivos estáticos. Cada archivo se lee una sola vez y se guarda con
+ * un ETag fuerte y su fecha de modificación ya formateada; un {@link WatchService} invalida las
+ * entradas cuando los archivos cambian en disco. Los archivos a partir de cierto tamaño no se
+ * copian al heap: se mapean en memoria y se envían por tramos directamente desde el mapeo.
+ */
+final class StaticAssetCache implements Closeable {
+    private static final Logger logger = Logger.getLogger(StaticAssetCache.class.getName());
+    private static final CacheMetrics CACHE_METRICS = CacheMetrics.of("static_assets");
+
+    private final Path root;
+    private final long mappedThreshold;
+    private final Map<Path, Asset> assets = new ConcurrentHashMap<>();
+    // Se incrementa en cada invalidación para no publicar lecturas que compitieron con un cambio
+    private final AtomicLong invalidations = new AtomicLong();
+    private final WatchService watcher;
+
+    /**
+     * Crea la caché y empieza a vigilar el directorio raíz y sus subdirectorios
+     * @param root directorio de los archivos estáticos
+     * @param mappedThreshold tamaño en bytes a partir del cual un archivo se mapea en lugar de copiarse al heap
+     */
+    StaticAssetCache(Path root, long mappedThreshold) {
+        this.root = root.toAbsolutePath().normalize();
+        this.mappedThreshold = mappedThreshold;
+        this.watcher = startWatcher();
+    }
+
+    /**
+     * Obtiene un archivo, leyéndolo de disco solo si no está en caché
+     * @param file ruta del archivo ya resuelta contra el directorio raíz
+     * @return el archivo, o null si no existe, no es un archivo regular o está fuera del directorio raíz
+     * @throws IOException si el archivo existe pero no se puede leer
+     */
+    Asset get(Path file) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        Asset asset = assets.get(key);
+        if (asset != null) {
+            CACHE_METRICS.hit();
+            return asset;
+        }
+        if (!key.startsWith(root) || !Files.isRegularFile(key)) {
+            return null;
+        }
+        CACHE_METRICS.miss();
+
+        long generation = invalidations.get();
+        asset = Asset.load(key, mappedThreshold);
+        assets.put(key, asset);
+        // Si hubo una invalidación mientras se leía, la copia puede estar desactualizada
+        if (watcher == null || invalidations.get() != generation) {
+            assets.remove(key, asset);
+        }
+
+        if (logger.isLoggable(Level.INFO)) {
+            logger.info(String.format("Archivo cargado en caché: %s (%d bytes%s)", key, asset.length,
+                    asset.mapped != null ? ", mapeado" : ""));
+        }
+        return asset;
+    }
+
+    /**
+     * Descarta la entrada de un archivo
+     * @param file archivo modificado o eliminado
+     */
+    void invalidate(Path file) {
+        invalidations.incrementAndGet();
+        assets.remove(file.toAbsolutePath().normalize());
+    }
+
+    void invalidateAll() {
+        invalidations.incrementAndGet();
+        assets.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (watcher != null) {
+            watcher.close();
+        }
+        assets.clear();
+    }
+
+    private WatchService startWatcher() {
+        try {
+            WatchService service = FileSystems.getDefault().newWatchService();
+            registerTree(service, root);
+            Thread thread = new Thread(() -> watch(service), "static-assets-watcher");
+            thread.setDaemon(true);
+            thread.start();
+            return service;
+        } catch (IOException | UnsupportedOperationException e) {
+            if (logger.isLoggable(Level.WARNING)) {
+                logger.log(Level.WARNING, String.format(
+                        "No se pudo vigilar %s; los archivos estáticos no se guardarán en caché", root), e);
+            }
+            return null;
+        }
+    }
+
+    private static void registerTree(WatchService service, Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                dir.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void watch(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    handleEvent(service, directory, event);
+                }
+                key.reset();
+            }
+        } catch (ClosedWatchServiceException e) {
+            logger.fine("Vigilancia de archivos estáticos detenida");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handleEvent(WatchService service, Path directory, WatchEvent<?> event) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            invalidateAll();
+            return;
+        }
+        Path changed = directory.resolve((Path) event.context());
+        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+            try {
+                registerTree(service, changed);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, String.format("No se pudo vigilar %s", changed), e);
+            }
+        }
+        if (Files.isDirectory(changed) || event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+            // Puede ser un directorio completo: se descarta todo lo que cuelga de él
+            invalidations.incrementAndGet();
+            assets.keySet().removeIf(path -> path.startsWith(changed));
+        } else {
+            invalidate(changed);
+        }
+    }
+
+    /**
+     * Archivo en memoria (en el heap o mapeado) con sus validadores HTTP precalculados
+     */
+    static final class Asset {
+        private static final byte[] NOT_COMPRESSIBLE = new byte[0];
+
+        private final byte[] bytes;
+        private final ByteBuffer mapped;
+        private final long length;
+        private final String etag;
+        private final String gzipEtag;
+        private final long lastModifiedSeconds;
+        private final String lastModified;
+        // Variante gzip calculada en la primera petición que la acepta
+        private volatile byte[] gzipped;
+
+        private Asset(byte[] bytes, ByteBuffer mapped, String etag, long lastModifiedSeconds) {
+            this.bytes = bytes;
+            this.mapped = mapped;
+            this.length = bytes != null ? bytes.length : mapped.capacity();
+            this.etag = etag;
+            this.gzipEtag = ETags.gzipVariant(etag);
+            this.lastModifiedSeconds = lastModifiedSeconds;
+            this.lastModified = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                    Instant.ofEpochSecond(lastModifiedSeconds).atZone(ZoneOffset.UTC));
+        }
+
+        private static Asset load(Path file, long mappedThreshold) throws IOException {
+            long modified = Files.getLastModifiedTime(file).toInstant().getEpochSecond();
+            long size = Files.size(file);
+            if (size < mappedThreshold) {
+                byte[] bytes = Files.readAllBytes(file);
+                return new Asset(bytes, null, ETags.strong(bytes), modified);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(String.format("Archivo demasiado grande para servirse: %s", file));
+            }
+            // El mapeo sigue siendo válido después de cerrar el canal
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                return new Asset(null, buffer, ETags.strong(buffer.duplicate()), modified);
+            }
+        }
+
+        long length() {
+            return length;
+        }
+
+        /**
+         * Escribe un tramo del archivo sin copiarlo entero al heap. Si el cuerpo acepta búferes
+         * ({@link WritableByteChannel}) se le pasa una vista de solo lectura, que puede enviar sin copiarla.
+         * @param out cuerpo de la respuesta
+         * @param offset primer byte a escribir
+         * @param count número de bytes a escribir
+         * @throws IOException si falla la escritura
+         */
+        void writeTo(OutputStream out, long offset, long count) throws IOException {
+            if (out instanceof WritableByteChannel) {
+                ByteBuffer view = bytes != null ? ByteBuffer.wrap(bytes).asReadOnlyBuffer() : mapped.duplicate();
+                view.position((int) offset).limit((int) (offset + count));
+                WritableByteChannel channel = (WritableByteChannel) out;
+                while (view.hasRemaining()) {
+                    channel.write(view);
+                }
+                return;
+            }
+            if (bytes != null) {
+                out.write(bytes, (int) offset, (int) count);
+                return;
+            }
+            ByteBuffer view = mapped.duplicate();
+            view.position((int) offset).limit((int) (offset + count));
+            byte[] chunk = TransferBuffers.acquire();
+            try {
+                while (view.hasRemaining()) {
+                    int size = Math.min(chunk.length, view.remaining());
+                    view.get(chunk, 0, size);
+                    out.write(chunk, 0, size);
+                }
+            } finally {
+                TransferBuffers.release(chunk);
+            }
+        }
+
+        /**
+         * @return copia del contenido completo del archivo
+         */
+        byte[] toByteArray() {
+            if (bytes != null) {
+                return bytes.clone();
+            }
+            byte[] copy = new byte[(int) length];
+            mapped.duplicate().get(copy);
+            return copy;
+        }
+
+        String etag() {
+            return etag;
+        }
+
+        String gzipEtag() {
+            return gzipEtag;
+        }
+
+        /**
+         * Devuelve la variante gzip, comprimiéndola la primera vez
+         * @return bytes comprimidos, o null si gzip no reduce el tamaño
+         */
+        byte[] gzipped() {
+            if (bytes == null) {
+                // Los archivos mapeados son grandes y casi siempre ya vienen comprimidos
+                return null;
+            }
+            byte[] compressed = gzipped;
+            if (compressed == null) {
+                compressed = ContentEncoding.gzip(bytes);
+                compressed = compressed.length < bytes.length ? compressed : NOT_COMPRESSIBLE;
+                gzipped = compressed;
+            }
+            return compressed == NOT_COMPRESSIBLE ? null : compressed;
+        }
+
+        String lastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Evalúa las cabeceras condicionales de la petición. If-None-Match tiene prioridad
+         * sobre If-Modified-Since, como indica el RFC 9110.
+         * @param ifNoneMatch valor de If-None-Match o null
+         * @param ifModifiedSince valor de If-Modified-Since o null
+         * @return true si el cliente ya tiene la versión actual y se puede responder 304
+         */
+        boolean isNotModified(String ifNoneMatch, String ifModifiedSince) {
+            if (ifNoneMatch != null) {
+                return ETags.matchesIfNoneMatch(ifNoneMatch, etag) || ETags.matchesIfNoneMatch(ifNoneMatch, gzipEtag);
+            }
+            if (ifModifiedSince != null) {
+                try {
+                    ZonedDateTime since = ZonedDateTime.parse(ifModifiedSince.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                    return lastModifiedSeconds <= since.toEpochSecond();
+                } catch (DateTimeParseException e) {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Evalúa If-Range: el rango solo se atiende si el validador coincide exactamente
+         * @param ifRange valor de If-Range o null
+         * @return true si no hay If-Range o si el cliente tiene la versión actual
+         */
+        boolean matchesIfRange(String ifRange) {
+            if (ifRange == null) {
+                return true;
+            }
+            String validator = ifRange.trim();
+            if (validator.startsWith("\"")) {
+                return validator.equals(etag);
+            }
+            return validator.equals(lastModified);
+        }
+    }
+}
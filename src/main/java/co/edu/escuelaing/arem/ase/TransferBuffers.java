@@ -0,0 +1,29 @@
+package co.edu.escuelaing.arem.ase;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Pool acotado de buffers para copiar archivos mapeados al flujo de respuesta. Evita reservar
+ * un arreglo de 64 KiB en cada petición; si el pool está vacío se crea uno nuevo y si está
+ * lleno al devolverlo se descarta, así que nunca bloquea.
+ */
+final class TransferBuffers {
+    static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final ArrayBlockingQueue<byte[]> pool = new ArrayBlockingQueue<>(MAX_POOLED);
+
+    private TransferBuffers() {
+    }
+
+    /**
+     * @return un buffer de {@link #BUFFER_SIZE} bytes, que debe devolverse con {@link #release}
+     */
+    static byte[] acquire() {
+        byte[] buffer = pool.poll();
+        return buffer != null ? buffer : new byte[BUFFER_SIZE];
+    }
+
+    static void release(byte[] buffer) {
+        pool.offer(buffer);
+    }
+}
@@ -1,8 +1,30 @@
 package co.edu.escuelaing.arem.ase.controller;
 
+import co.edu.escuelaing.arem.ase.Response;
+import co.edu.escuelaing.arem.ase.logging.LogRateLimiter;
+import co.edu.escuelaing.arem.ase.metrics.CacheMetrics;
+import co.edu.escuelaing.arem.ase.metrics.CoalescingMetrics;
+import co.edu.escuelaing.arem.ase.service.FilmDetails;
+import co.edu.escuelaing.arem.ase.service.FilmDetailsLookup;
+import co.edu.escuelaing.arem.ase.service.MovieBatch;
+import co.edu.escuelaing.arem.ase.service.MovieLookup;
 import co.edu.escuelaing.arem.ase.service.MovieService;
 import co.edu.escuelaing.arem.ase.model.Movie;
-import com.google.gson.Gson;
+import co.edu.escuelaing.arem.ase.model.MovieJson;
+import co.edu.escuelaing.arem.ase.service.SwapiResource;
+import com.google.gson.stream.JsonWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -11,58 +33,457 @@ import java.util.logging.Logger;
  */
 public class MovieController {
     private static final MovieService movieService = new MovieService();
-    private static final Gson gson = new Gson();
     private static final Logger logger = Logger.getLogger(MovieController.class.getName());
+    // Con la API caída cada petición falla igual; basta con unas pocas trazas por segundo
+    private static final LogRateLimiter LOOKUP_ERROR_LOG_LIMIT = LogRateLimiter.perSecond(1);
+    // Respuestas ya serializadas por episodio; se reconstruyen cuando cambia la película del catálogo
+    private static final int CACHED_EPISODES = 128;
+    private static final AtomicReferenceArray<CachedResponse> filmResponses = new AtomicReferenceArray<>(CACHED_EPISODES);
+    private static final CacheMetrics FILM_RESPONSE_METRICS = CacheMetrics.of("film_responses");
+    // Respuestas de /api/film/:id/details por episodio; se reconstruyen cuando cambia la película o el grafo
+    private static final AtomicReferenceArray<CachedResponse> detailResponses = new AtomicReferenceArray<>(CACHED_EPISODES);
+    // Nombres de los campos de /api/film/:id/details, ya codificados
+    private static final byte[] FILM_FIELD = "{\"film\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] CHARACTERS_FIELD = ",\"characters\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PLANETS_FIELD = ",\"planets\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] STARSHIPS_FIELD = ",\"starships\":".getBytes(StandardCharsets.UTF_8);
+    // Búsquedas por episodio que siguen esperando al catálogo; las peticiones concurrentes se unen a ellas
+    private static final ConcurrentHashMap<Integer, CompletableFuture<Response>> inFlightLookups = new ConcurrentHashMap<>();
+    private static final CoalescingMetrics LOOKUP_COALESCING = CoalescingMetrics.of("film_lookup");
+    // Listado completo ya serializado; se reconstruye cuando el catálogo publica otra lista
+    private static final AtomicReference<CachedResponse> listingResponse = new AtomicReference<>();
+    // Respuestas recientes de /api/films?ids= y /api/search, por las instancias de película que
+    // contienen; una consulta repetida no vuelve a concatenar ni a calcular el ETag
+    private static final int CACHED_BATCHES = 256;
+    private static final AtomicReferenceArray<CachedResponse> batchResponses = new AtomicReferenceArray<>(CACHED_BATCHES);
+    private static final CacheMetrics BATCH_RESPONSE_METRICS = CacheMetrics.of("batch_responses");
+    // Cota de IDs por petición de /api/films, para que una sola petición no construya respuestas enormes
+    private static final int MAX_BATCH_IDS = 50;
+    // Cotas de /api/search: longitud de la consulta y número de resultados
+    private static final int MAX_QUERY_LENGTH = 200;
+    private static final int DEFAULT_SEARCH_LIMIT = 10;
+    private static final int MAX_SEARCH_LIMIT = 50;
+    // Marca de RFC 7234 para respuestas servidas desde un catálogo expirado
+    private static final String WARNING_HEADER = "Warning";
+    private static final String STALE_WARNING = "110 - \"Response is Stale\"";
+    // Respuestas de error precodificadas
+    private static final Response EMPTY_ID_ERROR = createErrorResponse("El ID de la película no puede estar vacío");
+    private static final Response OUT_OF_RANGE_ERROR = createErrorResponse("El ID de la película debe ser un número positivo");
+    private static final Response INVALID_ID_ERROR = createErrorResponse("El ID de la película debe ser un número válido");
+    private static final Response NOT_FOUND_ERROR = createErrorResponse("Película no encontrada");
+    private static final Response LOOKUP_ERROR = createErrorResponse("Error al obtener la información de la película");
+    private static final Response EMPTY_QUERY_ERROR = createErrorResponse("La búsqueda no puede estar vacía");
+    private static final Response QUERY_TOO_LONG_ERROR = createErrorResponse(
+            String.format("La búsqueda puede tener como máximo %d caracteres", MAX_QUERY_LENGTH));
+    private static final Response INVALID_LIMIT_ERROR = createErrorResponse(
+            String.format("El límite debe ser un número entre 1 y %d", MAX_SEARCH_LIMIT));
+    private static final Response TOO_MANY_IDS_ERROR = createErrorResponse(
+            String.format("Se pueden pedir como máximo %d películas a la vez", MAX_BATCH_IDS));
+
     private MovieController(){
     }
 
+    /**
+     * Carga el catálogo antes de abrir el puerto, desde la copia en disco si existe
+     */
+    public static void warmUp() {
+        movieService.warmUp();
+    }
+
     /**
      * Obtiene una película por su ID
      * @param id ID de la película a buscar
      * @return JSON con la información de la película o mensaje de error
      */
     public static String getMovie(String id) {
-        try {
-            if (id == null || id.trim().isEmpty()) {
-                return createErrorResponse("El ID de la película no puede estar vacío");
-            }
+        return getMovieAsync(id).join().bodyAsString();
+    }
+
+    /**
+     * Obtiene una película por su ID sin bloquear el hilo que atiende la petición
+     * @param id ID de la película a buscar
+     * @return futuro con la respuesta JSON de la película o el mensaje de error; nunca se completa con excepción
+     */
+    public static CompletableFuture<Response> getMovieAsync(String id) {
+        if (id == null || id.trim().isEmpty()) {
+            return CompletableFuture.completedFuture(EMPTY_ID_ERROR);
+        }
+
+        // Validamos y convertimos el ID
+        Response validationError = validateMovieId(id);
+        if (validationError != null) {
+            return CompletableFuture.completedFuture(validationError);
+        }
 
-            // Validamos y convertimos el ID
-            String validationError = validateMovieId(id);
+        int episodeId = Integer.parseInt(id);
+        CompletableFuture<Response> shared = inFlightLookups.get(episodeId);
+        if (shared != null) {
+            LOOKUP_COALESCING.follower();
+            return shared;
+        }
+        CompletableFuture<MovieLookup> lookup = movieService.lookupMovieAsync(id);
+        if (lookup.isDone()) {
+            // Con el catálogo en memoria la búsqueda ya terminó: no hay nada que compartir
+            return lookup.handle(MovieController::toLookupResponse);
+        }
+        return coalesce(episodeId, lookup);
+    }
+
+    /**
+     * Comparte una búsqueda pendiente con las peticiones del mismo episodio que lleguen mientras
+     * se espera al catálogo. Todas reciben la misma respuesta, construida una sola vez, en lugar de
+     * encadenar cada una su propia conversión al completarse la descarga.
+     * <p>
+     * Solo se espera al catálogo cuando no hay ninguno en memoria: en el arranque en frío sin copia
+     * en disco, o si la primera descarga falló. Con el catálogo expirado se responde con el obsoleto
+     * mientras se refresca, así que esas búsquedas terminan al momento y no pasan por aquí; la
+     * petición a SWAPI ya es única para todas gracias al refresco compartido de {@link MovieService}.
+     */
+    private static CompletableFuture<Response> coalesce(int episodeId, CompletableFuture<MovieLookup> lookup) {
+        CompletableFuture<Response> response = new CompletableFuture<>();
+        CompletableFuture<Response> shared = inFlightLookups.putIfAbsent(episodeId, response);
+        if (shared != null) {
+            LOOKUP_COALESCING.follower();
+            return shared;
+        }
+        LOOKUP_COALESCING.leader();
+        lookup.handle(MovieController::toLookupResponse).whenComplete((result, error) -> {
+            inFlightLookups.remove(episodeId, response);
+            response.complete(error != null ? lookupFailed(error) : result);
+        });
+        return response;
+    }
+
+    private static Response toLookupResponse(MovieLookup lookup, Throwable error) {
+        if (error != null) {
+            logLookupError(error);
+            return LOOKUP_ERROR;
+        }
+        if (lookup.movie() == null) {
+            return NOT_FOUND_ERROR;
+        }
+        return toResponse(lookup);
+    }
+
+    /**
+     * Obtiene varias películas, o el catálogo completo, con una sola lectura del catálogo
+     * @param ids IDs separados por comas (por ejemplo {@code 1,2,4}); null para listar todas las películas
+     * @return futuro con un arreglo JSON de películas en el orden pedido, omitiendo las que no
+     *     existen, o el mensaje de error; nunca se completa con excepción
+     */
+    public static CompletableFuture<Response> getMoviesAsync(String ids) {
+        if (ids == null) {
+            return movieService.listMoviesAsync().handle((batch, error) ->
+                    error != null ? lookupFailed(error) : toListingResponse(batch));
+        }
+        if (ids.trim().isEmpty()) {
+            return CompletableFuture.completedFuture(EMPTY_ID_ERROR);
+        }
+
+        String[] parts = ids.split(",", MAX_BATCH_IDS + 1);
+        if (parts.length > MAX_BATCH_IDS) {
+            return CompletableFuture.completedFuture(TOO_MANY_IDS_ERROR);
+        }
+        int[] episodeIds = new int[parts.length];
+        int count = 0;
+        for (String part : parts) {
+            String id = part.trim();
+            Response validationError = validateMovieId(id);
             if (validationError != null) {
-                return validationError;
+                return CompletableFuture.completedFuture(validationError);
+            }
+            int episodeId = Integer.parseInt(id);
+            if (!contains(episodeIds, count, episodeId)) {
+                episodeIds[count++] = episodeId;
+            }
+        }
+
+        int[] unique = count == episodeIds.length ? episodeIds : Arrays.copyOf(episodeIds, count);
+        return movieService.lookupMoviesAsync(unique).handle((batch, error) ->
+                error != null ? lookupFailed(error) : toBatchResponse(batch));
+    }
+
+    /**
+     * Obtiene una película con sus personajes, planetas y naves
+     * @param id ID de la película a buscar
+     * @return futuro con la respuesta JSON {@code {"film": ..., "characters": [...], "planets": [...],
+     *     "starships": [...]}} o el mensaje de error; nunca se completa con excepción
+     */
+    public static CompletableFuture<Response> getMovieDetailsAsync(String id) {
+        if (id == null || id.trim().isEmpty()) {
+            return CompletableFuture.completedFuture(EMPTY_ID_ERROR);
+        }
+        Response validationError = validateMovieId(id);
+        if (validationError != null) {
+            return CompletableFuture.completedFuture(validationError);
+        }
+
+        return movieService.lookupDetailsAsync(id).handle((lookup, error) -> {
+            if (error != null) {
+                return lookupFailed(error);
+            }
+            if (lookup.details() == null) {
+                return NOT_FOUND_ERROR;
+            }
+            return toDetailsResponse(lookup);
+        });
+    }
+
+    /**
+     * Busca películas por texto sin consultar SWAPI
+     * @param query texto a buscar en el título, director, productores, fecha de estreno y texto inicial
+     * @param limit número máximo de resultados; null para el valor por defecto
+     * @return futuro con un arreglo JSON de películas ordenadas por relevancia, vacío si ninguna
+     *     coincide, o el mensaje de error; nunca se completa con excepción
+     */
+    public static CompletableFuture<Response> searchMoviesAsync(String query, String limit) {
+        if (query == null || query.trim().isEmpty()) {
+            return CompletableFuture.completedFuture(EMPTY_QUERY_ERROR);
+        }
+        if (query.length() > MAX_QUERY_LENGTH) {
+            return CompletableFuture.completedFuture(QUERY_TOO_LONG_ERROR);
+        }
+        int maxResults = DEFAULT_SEARCH_LIMIT;
+        if (limit != null) {
+            try {
+                maxResults = Integer.parseInt(limit.trim());
+            } catch (NumberFormatException e) {
+                return CompletableFuture.completedFuture(INVALID_LIMIT_ERROR);
+            }
+            if (maxResults < 1 || maxResults > MAX_SEARCH_LIMIT) {
+                return CompletableFuture.completedFuture(INVALID_LIMIT_ERROR);
+            }
+        }
+
+        return movieService.searchMoviesAsync(query, maxResults).handle((batch, error) ->
+                error != null ? lookupFailed(error) : toBatchResponse(batch));
+    }
+
+    private static boolean contains(int[] ids, int count, int id) {
+        for (int i = 0; i < count; i++) {
+            if (ids[i] == id) {
+                return true;
             }
+        }
+        return false;
+    }
+
+    private static Response lookupFailed(Throwable error) {
+        logLookupError(error);
+        return LOOKUP_ERROR;
+    }
+
+    private static Response toListingResponse(MovieBatch batch) {
+        List<Movie> movies = batch.movies();
+        CachedResponse cached = listingResponse.get();
+        if (cached == null || cached.source != movies) {
+            cached = new CachedResponse(movies, Response.json(concatenate(movies)));
+            listingResponse.set(cached);
+        }
+        return batch.stale() ? cached.staleResponse() : cached.response;
+    }
+
+    /**
+     * Respuesta de un subconjunto de películas. La caché es de correspondencia directa: cada
+     * combinación de instancias ocupa una ranura y se reemplaza cuando otra cae en ella o cuando
+     * un refresco publica películas nuevas.
+     */
+    private static Response toBatchResponse(MovieBatch batch) {
+        List<Movie> movies = batch.movies();
+        int slot = Math.floorMod(identityHash(movies), CACHED_BATCHES);
+        CachedResponse cached = batchResponses.get(slot);
+        if (cached != null && sameInstances((Movie[]) cached.source, movies)) {
+            BATCH_RESPONSE_METRICS.hit();
+        } else {
+            BATCH_RESPONSE_METRICS.miss();
+            cached = new CachedResponse(movies.toArray(new Movie[0]), Response.json(concatenate(movies)));
+            batchResponses.set(slot, cached);
+        }
+        return batch.stale() ? cached.staleResponse() : cached.response;
+    }
+
+    private static int identityHash(List<Movie> movies) {
+        int hash = 1;
+        for (Movie movie : movies) {
+            hash = 31 * hash + System.identityHashCode(movie);
+        }
+        return hash;
+    }
 
-            Movie movie = movieService.getMovieById(id);
-            if (movie == null) {
-                return createErrorResponse("Película no encontrada");
+    private static boolean sameInstances(Movie[] cached, List<Movie> movies) {
+        if (cached.length != movies.size()) {
+            return false;
+        }
+        for (int i = 0; i < cached.length; i++) {
+            if (cached[i] != movies.get(i)) {
+                return false;
             }
+        }
+        return true;
+    }
 
-            return gson.toJson(movie);
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Error al obtener la película", e);
-            return createErrorResponse("Error al obtener la información de la película");
+    /**
+     * Une en un arreglo JSON los cuerpos ya serializados de cada película, sin volver a
+     * serializarlas
+     */
+    private static byte[] concatenate(List<Movie> movies) {
+        byte[][] bodies = new byte[movies.size()][];
+        int length = 2 + Math.max(0, movies.size() - 1);
+        for (int i = 0; i < bodies.length; i++) {
+            bodies[i] = cachedFilm(movies.get(i)).response.body();
+            length += bodies[i].length;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length);
+        out.write('[');
+        for (int i = 0; i < bodies.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.writeBytes(bodies[i]);
         }
+        out.write(']');
+        return out.toByteArray();
     }
 
-    private static String validateMovieId(String id) {
+    /**
+     * Devuelve la respuesta serializada de una película. El catálogo publica instancias nuevas de
+     * {@link Movie} en cada refresco, así que la respuesta en caché sigue siendo válida mientras
+     * la película sea la misma instancia. Si la película sale de un catálogo expirado, la
+     * respuesta lleva además la cabecera {@code Warning: 110}.
+     */
+    private static Response toResponse(MovieLookup lookup) {
+        CachedResponse cached = cachedFilm(lookup.movie());
+        return lookup.stale() ? cached.staleResponse() : cached.response;
+    }
+
+    private static CachedResponse cachedFilm(Movie movie) {
+        int episodeId = movie.getEpisodeId();
+        if (episodeId < 0 || episodeId >= CACHED_EPISODES) {
+            return new CachedResponse(movie, Response.json(MovieJson.toJson(movie)));
+        }
+        CachedResponse cached = filmResponses.get(episodeId);
+        if (cached != null && cached.source == movie) {
+            FILM_RESPONSE_METRICS.hit();
+        } else {
+            FILM_RESPONSE_METRICS.miss();
+            cached = new CachedResponse(movie, Response.json(MovieJson.toJson(movie)));
+            filmResponses.set(episodeId, cached);
+        }
+        return cached;
+    }
+
+    private static Response toDetailsResponse(FilmDetailsLookup lookup) {
+        FilmDetails details = lookup.details();
+        int episodeId = details.movie().getEpisodeId();
+        CachedResponse cached = episodeId < CACHED_EPISODES ? detailResponses.get(episodeId) : null;
+        if (cached == null || cached.source != details) {
+            cached = new CachedResponse(details, Response.json(detailsJson(details)));
+            if (episodeId < CACHED_EPISODES) {
+                detailResponses.set(episodeId, cached);
+            }
+        }
+        return lookup.stale() ? cached.staleResponse() : cached.response;
+    }
+
+    /**
+     * Copia el cuerpo ya serializado de la película y escribe a continuación las relaciones, todo
+     * en el mismo búfer UTF-8
+     */
+    private static byte[] detailsJson(FilmDetails details) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        out.writeBytes(FILM_FIELD);
+        out.writeBytes(cachedFilm(details.movie()).response.body());
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        try {
+            writeResources(out, writer, CHARACTERS_FIELD, details.characters());
+            writeResources(out, writer, PLANETS_FIELD, details.planets());
+            writeResources(out, writer, STARSHIPS_FIELD, details.starships());
+        } catch (IOException e) {
+            // ByteArrayOutputStream no lanza IOException
+            throw new UncheckedIOException(e);
+        }
+        out.write('}');
+        return out.toByteArray();
+    }
+
+    private static void writeResources(ByteArrayOutputStream out, Writer writer, byte[] field,
+                                       List<SwapiResource> resources) throws IOException {
+        out.writeBytes(field);
+        // Cada arreglo es un valor JSON completo, así que lleva su propio JsonWriter
+        JsonWriter json = new JsonWriter(writer);
+        json.setHtmlSafe(true);
+        json.beginArray();
+        for (SwapiResource resource : resources) {
+            json.beginObject();
+            json.name("id").value(resource.id());
+            json.name("name").value(resource.name());
+            json.endObject();
+        }
+        json.endArray();
+        json.flush();
+    }
+
+    private static Response markStale(Response response) {
+        return response.withHeader(WARNING_HEADER, STALE_WARNING);
+    }
+
+    private static void logLookupError(Throwable error) {
+        if (!logger.isLoggable(Level.SEVERE)) {
+            return;
+        }
+        long suppressed = LOOKUP_ERROR_LOG_LIMIT.tryAcquire();
+        if (suppressed == LogRateLimiter.SUPPRESSED) {
+            return;
+        }
+        String message = suppressed > 0
+                ? "Error al obtener la película (" + suppressed + " errores similares omitidos)"
+                : "Error al obtener la película";
+        logger.log(Level.SEVERE, message, error);
+    }
+
+    private static Response validateMovieId(String id) {
         try {
             int movieId = Integer.parseInt(id);
-            if (movieId < 1 || movieId > 7) {
-                return createErrorResponse("El ID de la película debe estar entre 1 y 7");
+            // Qué episodios existen lo decide el catálogo, que responde "no encontrada"
+            if (movieId < 1) {
+                return OUT_OF_RANGE_ERROR;
             }
             return null; // ID válido
         } catch (NumberFormatException e) {
-            return createErrorResponse("El ID de la película debe ser un número válido");
+            return INVALID_ID_ERROR;
         }
     }
 
     /**
      * Crea una respuesta de error en formato JSON
      * @param message Mensaje de error
-     * @return JSON con el mensaje de error
+     * @return respuesta JSON con el mensaje de error
+     */
+    private static Response createErrorResponse(String message) {
+        return Response.json(String.format("{\"error\": \"%s\"}", message));
+    }
+
+    /**
+     * Respuesta serializada junto con el objeto del catálogo a partir del que se generó
+     * (una película o la lista completa); sigue siendo válida mientras sea la misma instancia
      */
-    private static String createErrorResponse(String message) {
-        return String.format("{\"error\": \"%s\"}", message);
+    private static final class CachedResponse {
+        private final Object source;
+        private final Response response;
+        private volatile Response staleResponse;
+
+        private CachedResponse(Object source, Response response) {
+            this.source = source;
+            this.response = response;
+        }
+
+        private Response staleResponse() {
+            Response stale = staleResponse;
+            if (stale == null) {
+                stale = markStale(response);
+                staleResponse = stale;
+            }
+            return stale;
+        }
     }
 }
@@ -0,0 +1,175 @@
+package co.edu.escuelaing.arem.ase.logging;
+
+import co.edu.escuelaing.arem.ase.AppConfig;
+import co.edu.escuelaing.arem.ase.metrics.Counter;
+import co.edu.escuelaing.arem.ase.metrics.Metrics;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Handler de {@code java.util.logging} que desacopla a los hilos que registran de la escritura.
+ * <p>
+ * {@link #publish} solo encola el registro en un {@link RingBuffer} acotado; un hilo en segundo
+ * plano lo entrega a los handlers originales, que son los que formatean el mensaje (los
+ * parámetros {@code {0}} se resuelven allí, no en el hilo de la petición) y escriben en la
+ * salida. Si el buffer se llena, los registros por debajo de WARNING se descartan y se cuentan;
+ * los de WARNING o superiores se escriben en el propio hilo para no perder errores.
+ */
+public final class AsyncLogHandler extends Handler {
+    static final String MODE_KEY = "starwars.logging.mode";
+    static final String BUFFER_KEY = "starwars.logging.buffer";
+    private static final int DEFAULT_BUFFER = 8192;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long CLOSE_TIMEOUT_MILLIS = 2000;
+    private static final Counter DROPPED = Metrics.counter("starwars_log_records_dropped_total",
+            "Registros de log descartados porque el buffer asíncrono estaba lleno");
+
+    private final Handler[] delegates;
+    private final RingBuffer<LogRecord> buffer;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * Crea el handler y arranca su hilo de escritura
+     * @param capacity capacidad del buffer, redondeada a potencia de dos
+     * @param delegates handlers que escriben realmente los registros
+     */
+    public AsyncLogHandler(int capacity, Handler... delegates) {
+        this.delegates = delegates.clone();
+        this.buffer = new RingBuffer<>(capacity);
+        // Nada se encola si ningún handler final lo va a escribir
+        setLevel(lowestLevel(delegates));
+        this.writer = new Thread(this::drainLoop, "async-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Sustituye los handlers del logger raíz por un {@link AsyncLogHandler} que los envuelve,
+     * salvo que {@code starwars.logging.mode} sea {@code sync}. Llamarlo más de una vez no tiene efecto.
+     */
+    public static synchronized void installFromConfig() {
+        String mode = AppConfig.getString(MODE_KEY, "async").toLowerCase(Locale.ROOT);
+        if ("sync".equals(mode)) {
+            return;
+        }
+        if (!"async".equals(mode)) {
+            throw new IllegalArgumentException(String.format("Modo de log no soportado en %s: %s", MODE_KEY, mode));
+        }
+        Logger root = Logger.getLogger("");
+        Handler[] handlers = root.getHandlers();
+        if (handlers.length == 0) {
+            return;
+        }
+        for (Handler handler : handlers) {
+            if (handler instanceof AsyncLogHandler) {
+                return;
+            }
+        }
+        AsyncLogHandler async = new AsyncLogHandler(AppConfig.getInt(BUFFER_KEY, DEFAULT_BUFFER), handlers);
+        for (Handler handler : handlers) {
+            root.removeHandler(handler);
+        }
+        root.addHandler(async);
+        Runtime.getRuntime().addShutdownHook(new Thread(async::close, "async-log-shutdown"));
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+        // La clase y el método de origen se infieren de la pila, así que debe hacerse en este hilo
+        record.getSourceClassName();
+        if (buffer.offer(record)) {
+            return;
+        }
+        if (record.getLevel().intValue() >= Level.WARNING.intValue()) {
+            deliver(record);
+        } else {
+            DROPPED.increment();
+        }
+    }
+
+    /**
+     * Espera a que el hilo de escritura vacíe el buffer y vacía los handlers originales
+     */
+    @Override
+    public void flush() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MILLIS);
+        while (!buffer.isEmpty() && writer.isAlive() && System.nanoTime() < deadline) {
+            LockSupport.unpark(writer);
+            Thread.yield();
+        }
+        for (Handler delegate : delegates) {
+            delegate.flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Handler delegate : delegates) {
+            delegate.close();
+        }
+    }
+
+    private void drainLoop() {
+        boolean unflushed = false;
+        while (true) {
+            LogRecord record = buffer.poll();
+            if (record != null) {
+                deliver(record);
+                unflushed = true;
+                continue;
+            }
+            // Se vacían los handlers una vez por ráfaga, no por registro
+            if (unflushed) {
+                for (Handler delegate : delegates) {
+                    delegate.flush();
+                }
+                unflushed = false;
+            }
+            if (closed) {
+                return;
+            }
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+    }
+
+    private void deliver(LogRecord record) {
+        for (Handler delegate : delegates) {
+            try {
+                delegate.publish(record);
+            } catch (RuntimeException e) {
+                reportError("Error al escribir un registro de log", e, ErrorManager.WRITE_FAILURE);
+            }
+        }
+    }
+
+    private static Level lowestLevel(Handler[] handlers) {
+        Level lowest = Level.OFF;
+        for (Handler handler : handlers) {
+            if (handler.getLevel().intValue() < lowest.intValue()) {
+                lowest = handler.getLevel();
+            }
+        }
+        return lowest;
+    }
+}
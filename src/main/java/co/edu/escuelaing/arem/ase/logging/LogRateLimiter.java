@@ -0,0 +1,57 @@
+package co.edu.escuelaing.arem.ase.logging;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limita cuántas veces por ventana de tiempo se escribe un mensaje repetitivo, como los que
+ * genera cada petición ante un error que se repite. Los mensajes omitidos se cuentan y el
+ * número se informa en el siguiente que sí se escribe. No usa bloqueos ni reserva memoria.
+ */
+public final class LogRateLimiter {
+    /** Valor de {@link #tryAcquire()} cuando el mensaje debe omitirse */
+    public static final long SUPPRESSED = -1;
+
+    private final int permits;
+    private final long windowNanos;
+    private final AtomicLong windowStart;
+    private final AtomicInteger used = new AtomicInteger();
+    private final LongAdder suppressed = new LongAdder();
+
+    private LogRateLimiter(int permits, long windowNanos) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("El número de mensajes por ventana debe ser positivo");
+        }
+        this.permits = permits;
+        this.windowNanos = windowNanos;
+        this.windowStart = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Crea un limitador que deja pasar un número de mensajes por segundo
+     * @param permits mensajes permitidos en cada segundo
+     * @return el limitador
+     */
+    public static LogRateLimiter perSecond(int permits) {
+        return new LogRateLimiter(permits, TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Pide permiso para escribir un mensaje
+     * @return {@link #SUPPRESSED} si el mensaje debe omitirse; si no, cuántos se omitieron desde el último escrito
+     */
+    public long tryAcquire() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= windowNanos && windowStart.compareAndSet(start, now)) {
+            used.set(0);
+        }
+        if (used.incrementAndGet() <= permits) {
+            return suppressed.sumThenReset();
+        }
+        suppressed.increment();
+        return SUPPRESSED;
+    }
+}
@@ -0,0 +1,82 @@
+package co.edu.escuelaing.arem.ase.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cola acotada de varios productores y un único consumidor sobre un arreglo circular. Cada
+ * casilla lleva un número de secuencia, así que los productores solo compiten por un CAS sobre
+ * la posición de escritura y nunca toman un bloqueo; si la cola está llena {@link #offer} falla
+ * de inmediato en lugar de esperar.
+ */
+final class RingBuffer<T> {
+    private final AtomicReferenceArray<T> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // Solo lo escribe el consumidor; es volátil para que otros hilos puedan saber si se vació
+    private volatile long head;
+
+    /**
+     * @param capacity capacidad mínima; se redondea a la siguiente potencia de dos
+     */
+    RingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("La capacidad del buffer debe ser positiva");
+        }
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Encola un elemento. Seguro para varios hilos.
+     * @return false si la cola está llena
+     */
+    boolean offer(T element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Desencola un elemento. Solo debe llamarlo el hilo consumidor.
+     * @return el elemento más antiguo o null si la cola está vacía
+     */
+    T poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        T element = slots.get(index);
+        slots.set(index, null);
+        sequences.set(index, position + mask + 1);
+        head = position + 1;
+        return element;
+    }
+
+    boolean isEmpty() {
+        return head == tail.get();
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
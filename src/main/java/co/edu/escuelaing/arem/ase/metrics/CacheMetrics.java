@@ -0,0 +1,41 @@
+package co.edu.escuelaing.arem.ase.metrics;
+
+/**
+ * Aciertos y fallos de una caché, exportados como contador y como proporción de aciertos
+ */
+public final class CacheMetrics {
+    private static final String REQUESTS = "starwars_cache_requests_total";
+    private static final String HIT_RATIO = "starwars_cache_hit_ratio";
+
+    private final Counter hits;
+    private final Counter misses;
+
+    private CacheMetrics(String cache) {
+        this.hits = Metrics.counter(REQUESTS, "Consultas a cachés internas por resultado", "cache", cache, "result", "hit");
+        this.misses = Metrics.counter(REQUESTS, "Consultas a cachés internas por resultado", "cache", cache, "result", "miss");
+        Metrics.gauge(HIT_RATIO, "Proporción de aciertos de cada caché desde el arranque", this::hitRatio, "cache", cache);
+    }
+
+    /**
+     * Registra las métricas de una caché
+     * @param cache nombre de la caché, usado como etiqueta
+     * @return las métricas de la caché
+     */
+    public static CacheMetrics of(String cache) {
+        return new CacheMetrics(cache);
+    }
+
+    public void hit() {
+        hits.increment();
+    }
+
+    public void miss() {
+        misses.increment();
+    }
+
+    private double hitRatio() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+}
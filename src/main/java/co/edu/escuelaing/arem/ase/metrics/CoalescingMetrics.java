@@ -0,0 +1,42 @@
+package co.edu.escuelaing.arem.ase.metrics;
+
+/**
+ * Peticiones que inician una operación en curso (líderes) y las que se unen a ella (seguidoras),
+ * exportadas como contador y como proporción de peticiones agrupadas
+ */
+public final class CoalescingMetrics {
+    private static final String REQUESTS = "starwars_coalesced_requests_total";
+    private static final String RATIO = "starwars_coalescing_ratio";
+
+    private final Counter leaders;
+    private final Counter followers;
+
+    private CoalescingMetrics(String operation) {
+        this.leaders = Metrics.counter(REQUESTS, "Peticiones que esperaron una operación en curso, por papel", "operation", operation, "role", "leader");
+        this.followers = Metrics.counter(REQUESTS, "Peticiones que esperaron una operación en curso, por papel", "operation", operation, "role", "follower");
+        Metrics.gauge(RATIO, "Proporción de peticiones en espera que se unieron a una operación ya en curso", this::ratio, "operation", operation);
+    }
+
+    /**
+     * Registra las métricas de una operación agrupada
+     * @param operation nombre de la operación, usado como etiqueta
+     * @return las métricas de la operación
+     */
+    public static CoalescingMetrics of(String operation) {
+        return new CoalescingMetrics(operation);
+    }
+
+    public void leader() {
+        leaders.increment();
+    }
+
+    public void follower() {
+        followers.increment();
+    }
+
+    private double ratio() {
+        long followerCount = followers.get();
+        long total = followerCount + leaders.get();
+        return total == 0 ? 0 : (double) followerCount / total;
+    }
+}
@@ -0,0 +1,26 @@
+package co.edu.escuelaing.arem.ase.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contador monótono sin bloqueos. {@link LongAdder} reparte las actualizaciones concurrentes
+ * entre celdas, así que incrementar no compite por una única variable ni reserva memoria.
+ */
+public final class Counter {
+    private final LongAdder value = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+}
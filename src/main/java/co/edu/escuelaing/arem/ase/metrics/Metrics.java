@@ -0,0 +1,190 @@
+package co.edu.escuelaing.arem.ase.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Registro global de métricas de la aplicación, exportable en el formato de texto de Prometheus.
+ * <p>
+ * Las métricas se registran una vez (normalmente en un campo {@code static final}) y el código
+ * instrumentado solo conserva la referencia, de modo que registrar una medida no busca en
+ * mapas ni reserva memoria. Registrar dos veces el mismo nombre y etiquetas devuelve la misma
+ * instancia.
+ */
+public final class Metrics {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    // Límites de las cubetas exportadas, en segundos; internamente el histograma es más fino
+    private static final String[] EXPORTED_BUCKETS = {
+            "0.0005", "0.001", "0.0025", "0.005", "0.01", "0.025", "0.05", "0.1", "0.25", "0.5", "1", "2.5", "5", "10"
+    };
+    private static final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Registra (o recupera) un contador
+     * @param name nombre de la métrica, terminado en {@code _total} por convención
+     * @param help descripción
+     * @param labels pares nombre/valor de etiquetas
+     * @return el contador
+     */
+    public static Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, Type.COUNTER).metrics
+                .computeIfAbsent(formatLabels(labels), key -> new Counter());
+    }
+
+    /**
+     * Registra (o recupera) un histograma de latencias
+     * @param name nombre de la métrica, terminado en {@code _seconds} por convención
+     * @param help descripción
+     * @param labels pares nombre/valor de etiquetas
+     * @return el histograma
+     */
+    public static LatencyHistogram histogram(String name, String help, String... labels) {
+        return (LatencyHistogram) family(name, help, Type.HISTOGRAM).metrics
+                .computeIfAbsent(formatLabels(labels), key -> new LatencyHistogram());
+    }
+
+    /**
+     * Registra un valor que se calcula al exportar. Si ya había uno con el mismo nombre y
+     * etiquetas se reemplaza, por ejemplo cuando el servidor se reinicia con un executor nuevo.
+     * @param name nombre de la métrica
+     * @param help descripción
+     * @param value función que devuelve el valor actual
+     * @param labels pares nombre/valor de etiquetas
+     */
+    public static void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).metrics.put(formatLabels(labels), value);
+    }
+
+    /**
+     * Exporta todas las métricas registradas
+     * @return texto en el formato de exposición de Prometheus 0.0.4
+     */
+    public static String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : families.values()) {
+            family.writeTo(out);
+        }
+        return out.toString();
+    }
+
+    private static Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException(String.format("La métrica %s ya está registrada como %s", name, family.type.text));
+        }
+        return family;
+    }
+
+    private static String formatLabels(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Las etiquetas deben ser pares nombre/valor");
+        }
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(labels[i]).append("=\"");
+            escapeLabelValue(labels[i + 1], out);
+            out.append('"');
+        }
+        return out.toString();
+    }
+
+    private static void escapeLabelValue(String value, StringBuilder out) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    private static String formatNumber(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private enum Type {
+        COUNTER("counter"), GAUGE("gauge"), HISTOGRAM("histogram");
+
+        private final String text;
+
+        Type(String text) {
+            this.text = text;
+        }
+    }
+
+    /**
+     * Métricas con el mismo nombre que solo se diferencian en sus etiquetas
+     */
+    private static final class Family {
+        private final String name;
+        private final String help;
+        private final Type type;
+        private final Map<String, Object> metrics = new ConcurrentSkipListMap<>();
+
+        private Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        private void writeTo(StringBuilder out) {
+            if (metrics.isEmpty()) {
+                return;
+            }
+            out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(type.text).append('\n');
+            for (Map.Entry<String, Object> entry : metrics.entrySet()) {
+                String labels = entry.getKey();
+                Object metric = entry.getValue();
+                if (metric instanceof Counter) {
+                    sample(out, name, labels, formatNumber(((Counter) metric).get()));
+                } else if (metric instanceof DoubleSupplier) {
+                    sample(out, name, labels, formatNumber(((DoubleSupplier) metric).getAsDouble()));
+                } else {
+                    writeHistogram(out, labels, (LatencyHistogram) metric);
+                }
+            }
+        }
+
+        private void writeHistogram(StringBuilder out, String labels, LatencyHistogram histogram) {
+            // Se lee el total primero: las cubetas pueden avanzar mientras se exportan, pero
+            // ninguna cubeta acumulada supera así al total que se publica
+            long count = histogram.count();
+            String bucketName = name + "_bucket";
+            String prefix = labels.isEmpty() ? "" : labels + ",";
+            for (String bound : EXPORTED_BUCKETS) {
+                long limitNanos = (long) (Double.parseDouble(bound) * TimeUnit.SECONDS.toNanos(1));
+                long cumulative = Math.min(count, histogram.countAtOrBelow(limitNanos));
+                sample(out, bucketName, prefix + "le=\"" + bound + "\"", Long.toString(cumulative));
+            }
+            sample(out, bucketName, prefix + "le=\"+Inf\"", Long.toString(count));
+            sample(out, name + "_sum", labels, Double.toString(histogram.sumSeconds()));
+            sample(out, name + "_count", labels, Long.toString(count));
+        }
+
+        private static void sample(StringBuilder out, String name, String labels, String value) {
+            out.append(name);
+            if (!labels.isEmpty()) {
+                out.append('{').append(labels).append('}');
+            }
+            out.append(' ').append(value).append('\n');
+        }
+    }
+}
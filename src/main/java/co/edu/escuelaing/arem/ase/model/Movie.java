@@ -2,25 +2,28 @@ package co.edu.escuelaing.arem.ase.model;
 
 import com.google.gson.annotations.SerializedName;
 
-public class Movie {
-    private String title;
-
+/**
+ * Película del catálogo. Es inmutable: el catálogo comparte las mismas instancias entre hilos
+ * y las cachés de respuestas se validan por identidad.
+ */
+public final class Movie {
+    private final String title;
+
+    // La aplicación serializa con MovieJson y FilmsDecoder; los nombres de SWAPI solo los necesita
+    // Gson por reflexión en los benchmarks que comparan con la serialización anterior
     @SerializedName("episode_id")
-    private Integer episodeId;
+    private final int episodeId;
 
     @SerializedName("opening_crawl")
-    private String openingCrawl;
+    private final String openingCrawl;
 
-    private String director;
-    private String producer;
+    private final String director;
+    private final String producer;
 
     @SerializedName("release_date")
-    private String releaseDate;
-
-    public Movie() {
-    }
+    private final String releaseDate;
 
-    public Movie(String title, Integer episodeId, String openingCrawl, String director, String producer, String releaseDate) {
+    public Movie(String title, int episodeId, String openingCrawl, String director, String producer, String releaseDate) {
         this.title = title;
         this.episodeId = episodeId;
         this.openingCrawl = openingCrawl;
@@ -33,50 +36,26 @@ public class Movie {
         return title;
     }
 
-    public void setTitle(String title) {
-        this.title = title;
-    }
-
-    public Integer getEpisodeId() {
+    public int getEpisodeId() {
         return episodeId;
     }
 
-    public void setEpisodeId(Integer episodeId) {
-        this.episodeId = episodeId;
-    }
-
     public String getOpeningCrawl() {
         return openingCrawl;
     }
 
-    public void setOpeningCrawl(String openingCrawl) {
-        this.openingCrawl = openingCrawl;
-    }
-
     public String getDirector() {
         return director;
     }
 
-    public void setDirector(String director) {
-        this.director = director;
-    }
-
     public String getProducer() {
         return producer;
     }
 
-    public void setProducer(String producer) {
-        this.producer = producer;
-    }
-
     public String getReleaseDate() {
         return releaseDate;
     }
 
-    public void setReleaseDate(String releaseDate) {
-        this.releaseDate = releaseDate;
-    }
-
     @Override
     public String toString() {
         return "Movie{" +
@@ -88,4 +67,4 @@ public class Movie {
                 ", openingCrawl='" + openingCrawl + '\'' +
                 '}';
     }
-}
\ No newline at end of file
+}
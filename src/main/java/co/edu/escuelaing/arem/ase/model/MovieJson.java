@@ -0,0 +1,253 @@
+package co.edu.escuelaing.arem.ase.model;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codificación JSON de {@link Movie} sin reflexión.
+ * <p>
+ * El escritor calcula primero la longitud exacta en UTF-8 y después escribe los bytes
+ * directamente, así que serializar una película reserva solo el arreglo del resultado. La salida
+ * es idéntica a la de {@code new Gson().toJson(movie)}: mismo orden de campos, campos nulos
+ * omitidos y el mismo escapado, incluido el de HTML ({@code < > & = '}), de modo que los ETag de
+ * las respuestas no cambian. El lector enlaza los campos que usa la aplicación y descarta el resto.
+ */
+public final class MovieJson {
+    private static final byte[] TITLE = key("title");
+    private static final byte[] EPISODE_ID = key("episode_id");
+    private static final byte[] OPENING_CRAWL = key("opening_crawl");
+    private static final byte[] DIRECTOR = key("director");
+    private static final byte[] PRODUCER = key("producer");
+    private static final byte[] RELEASE_DATE = key("release_date");
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    // Escape de cada carácter ASCII, o null si se escribe tal cual
+    private static final byte[][] ASCII_ESCAPES = new byte[128][];
+    // Gson también escapa los separadores de línea y párrafo de Unicode, que JavaScript no admite en cadenas
+    private static final char LINE_SEPARATOR = 0x2028;
+    private static final char PARAGRAPH_SEPARATOR = 0x2029;
+    private static final byte[] LINE_SEPARATOR_ESCAPE = unicodeEscape(LINE_SEPARATOR);
+    private static final byte[] PARAGRAPH_SEPARATOR_ESCAPE = unicodeEscape(PARAGRAPH_SEPARATOR);
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ASCII_ESCAPES[c] = unicodeEscape((char) c);
+        }
+        for (char c : new char[]{'<', '>', '&', '=', '\''}) {
+            ASCII_ESCAPES[c] = unicodeEscape(c);
+        }
+        ASCII_ESCAPES['"'] = "\\\"".getBytes(StandardCharsets.US_ASCII);
+        ASCII_ESCAPES['\\'] = "\\\\".getBytes(StandardCharsets.US_ASCII);
+        ASCII_ESCAPES['\t'] = "\\t".getBytes(StandardCharsets.US_ASCII);
+        ASCII_ESCAPES['\b'] = "\\b".getBytes(StandardCharsets.US_ASCII);
+        ASCII_ESCAPES['\n'] = "\\n".getBytes(StandardCharsets.US_ASCII);
+        ASCII_ESCAPES['\r'] = "\\r".getBytes(StandardCharsets.US_ASCII);
+        ASCII_ESCAPES['\f'] = "\\f".getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private MovieJson() {
+    }
+
+    /**
+     * Serializa una película
+     * @param movie película a serializar
+     * @return JSON de la película en UTF-8
+     */
+    public static byte[] toJson(Movie movie) {
+        byte[] out = new byte[encodedLength(movie)];
+        write(movie, out, 0);
+        return out;
+    }
+
+    /**
+     * @param movie película a serializar
+     * @return número exacto de bytes que escribe {@link #write(Movie, byte[], int)}
+     */
+    public static int encodedLength(Movie movie) {
+        int length = 2 + EPISODE_ID.length + intLength(movie.getEpisodeId());
+        length += fieldLength(TITLE, movie.getTitle());
+        length += fieldLength(OPENING_CRAWL, movie.getOpeningCrawl());
+        length += fieldLength(DIRECTOR, movie.getDirector());
+        length += fieldLength(PRODUCER, movie.getProducer());
+        length += fieldLength(RELEASE_DATE, movie.getReleaseDate());
+        return length;
+    }
+
+    /**
+     * Escribe una película en un arreglo con al menos {@link #encodedLength(Movie)} bytes libres
+     * @param movie película a serializar
+     * @param out arreglo de destino
+     * @param offset posición de inicio
+     * @return posición siguiente al último byte escrito
+     */
+    public static int write(Movie movie, byte[] out, int offset) {
+        int pos = offset;
+        out[pos++] = '{';
+        pos = writeField(out, pos, TITLE, movie.getTitle());
+        pos = writeKey(out, pos, EPISODE_ID);
+        pos = writeInt(out, pos, movie.getEpisodeId());
+        pos = writeField(out, pos, OPENING_CRAWL, movie.getOpeningCrawl());
+        pos = writeField(out, pos, DIRECTOR, movie.getDirector());
+        pos = writeField(out, pos, PRODUCER, movie.getProducer());
+        pos = writeField(out, pos, RELEASE_DATE, movie.getReleaseDate());
+        out[pos++] = '}';
+        return pos;
+    }
+
+    /**
+     * Lee una película del objeto JSON en la posición actual; los campos desconocidos o nulos se ignoran
+     * @param json lector situado al inicio del objeto
+     * @return la película, o null si el objeto no trae {@code episode_id}
+     * @throws IOException si el JSON no es válido
+     */
+    public static Movie read(JsonReader json) throws IOException {
+        String title = null;
+        String openingCrawl = null;
+        String director = null;
+        String producer = null;
+        String releaseDate = null;
+        int episodeId = 0;
+        boolean hasEpisodeId = false;
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "title" -> title = json.nextString();
+                case "episode_id" -> {
+                    episodeId = json.nextInt();
+                    hasEpisodeId = true;
+                }
+                case "opening_crawl" -> openingCrawl = json.nextString();
+                case "director" -> director = json.nextString();
+                case "producer" -> producer = json.nextString();
+                case "release_date" -> releaseDate = json.nextString();
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        return hasEpisodeId ? new Movie(title, episodeId, openingCrawl, director, producer, releaseDate) : null;
+    }
+
+    private static int fieldLength(byte[] key, String value) {
+        // Clave, separador y comillas; los nulos se omiten como en Gson
+        return value == null ? 0 : 1 + key.length + 2 + stringLength(value);
+    }
+
+    private static int writeField(byte[] out, int pos, byte[] key, String value) {
+        if (value == null) {
+            return pos;
+        }
+        pos = writeKey(out, pos, key);
+        out[pos++] = '"';
+        pos = writeString(out, pos, value);
+        out[pos++] = '"';
+        return pos;
+    }
+
+    /**
+     * Escribe la clave precedida de una coma salvo que sea el primer campo del objeto
+     */
+    private static int writeKey(byte[] out, int pos, byte[] key) {
+        if (out[pos - 1] != '{') {
+            out[pos++] = ',';
+        }
+        System.arraycopy(key, 0, out, pos, key.length);
+        return pos + key.length;
+    }
+
+    private static int stringLength(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                byte[] escape = ASCII_ESCAPES[c];
+                length += escape == null ? 1 : escape.length;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR) {
+                length += 6;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // Surrogate suelto: como String.getBytes, se sustituye por '?'
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static int writeString(byte[] out, int pos, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                byte[] escape = ASCII_ESCAPES[c];
+                if (escape == null) {
+                    out[pos++] = (byte) c;
+                } else {
+                    System.arraycopy(escape, 0, out, pos, escape.length);
+                    pos += escape.length;
+                }
+            } else if (c < 0x800) {
+                out[pos++] = (byte) (0xC0 | (c >> 6));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR) {
+                System.arraycopy(c == LINE_SEPARATOR ? LINE_SEPARATOR_ESCAPE : PARAGRAPH_SEPARATOR_ESCAPE, 0, out, pos, 6);
+                pos += 6;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                out[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                out[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                out[pos++] = '?';
+            } else {
+                out[pos++] = (byte) (0xE0 | (c >> 12));
+                out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+
+    private static int intLength(int value) {
+        long magnitude = Math.abs((long) value);
+        int length = value < 0 ? 2 : 1;
+        while (magnitude >= 10) {
+            magnitude /= 10;
+            length++;
+        }
+        return length;
+    }
+
+    private static int writeInt(byte[] out, int pos, int value) {
+        int end = pos + intLength(value);
+        long magnitude = Math.abs((long) value);
+        int i = end;
+        do {
+            out[--i] = (byte) ('0' + magnitude % 10);
+            magnitude /= 10;
+        } while (magnitude > 0);
+        if (value < 0) {
+            out[pos] = '-';
+        }
+        return end;
+    }
+
+    private static byte[] key(String name) {
+        return ("\"" + name + "\":").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] unicodeEscape(char c) {
+        return new byte[]{'\\', 'u', HEX[c >> 12], HEX[(c >> 8) & 0xF], HEX[(c >> 4) & 0xF], HEX[c & 0xF]};
+    }
+}
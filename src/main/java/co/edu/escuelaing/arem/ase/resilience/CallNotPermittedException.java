@@ -0,0 +1,16 @@
+package co.edu.escuelaing.arem.ase.resilience;
+
+/**
+ * Excepción con la que falla una llamada rechazada sin llegar a hacerse, porque el circuito
+ * está abierto o no quedan plazas en el bulkhead
+ */
+public class CallNotPermittedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param message motivo del rechazo
+     */
+    public CallNotPermittedException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,82 @@
+package co.edu.escuelaing.arem.ase.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Cortocircuito para un servicio externo. Tras un número de fallos consecutivos se abre y
+ * rechaza las llamadas de inmediato durante un tiempo; pasado ese tiempo deja pasar una única
+ * llamada de prueba (semiabierto) y, según su resultado, vuelve a cerrarse o a abrirse.
+ * Las transiciones son CAS sobre el estado, sin bloqueos.
+ */
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+
+    /**
+     * @param failureThreshold fallos consecutivos que abren el circuito
+     * @param openDuration tiempo que el circuito permanece abierto antes de probar de nuevo
+     */
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        if (failureThreshold < 1 || openDuration.isNegative() || openDuration.isZero()) {
+            throw new IllegalArgumentException("El umbral de fallos y el tiempo de apertura deben ser positivos");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Decide si una llamada puede intentarse. Con el circuito abierto y el tiempo de espera
+     * cumplido, solo el primer hilo que llega obtiene permiso para la llamada de prueba.
+     * @return true si la llamada puede hacerse
+     */
+    public boolean tryAcquirePermission() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        return current == State.OPEN
+                && System.nanoTime() - openedAt >= openNanos
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN);
+    }
+
+    /**
+     * Devuelve el permiso de una llamada que finalmente no se hizo. Si era la llamada de prueba,
+     * el circuito vuelve a abierto sin reiniciar la espera, para que el siguiente hilo la intente.
+     */
+    void releasePermission() {
+        state.compareAndSet(State.HALF_OPEN, State.OPEN);
+    }
+
+    /**
+     * Registra una llamada exitosa y cierra el circuito
+     */
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        state.set(State.CLOSED);
+    }
+
+    /**
+     * Registra una llamada fallida; abre el circuito si falla la llamada de prueba o se
+     * alcanza el umbral de fallos consecutivos
+     */
+    public void onFailure() {
+        if (state.get() == State.HALF_OPEN || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedAt = System.nanoTime();
+            state.set(State.OPEN);
+        }
+    }
+
+    public State state() {
+        return state.get();
+    }
+}
@@ -0,0 +1,76 @@
+package co.edu.escuelaing.arem.ase.resilience;
+
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Limitador de peticiones por cliente con cubetas de tokens, implementadas con GCRA: cada cubeta
+ * es un único {@code long} con el instante teórico de la siguiente llegada, y admitir una
+ * petición es una lectura y un CAS, sin bloqueos ni memoria reservada.
+ * <p>
+ * Las cubetas forman una tabla fija indexada por un hash de la dirección del cliente, sin mapa
+ * ni limpieza: una cubeta cuyo instante ya pasó equivale a una llena, así que los clientes que
+ * dejan de llegar no ocupan nada. Dos clientes que caen en la misma cubeta comparten su cupo;
+ * con tablas de miles de cubetas es raro y solo los hace más estrictos. Cada cubeta ocupa su
+ * propia línea de caché para que clientes distintos no compitan por ella.
+ */
+public final class ClientRateLimiter {
+    // Un long cada 64 bytes: cubetas vecinas no comparten línea de caché
+    private static final int STRIDE = 8;
+
+    private final AtomicLongArray arrivals;
+    private final int mask;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    // Los instantes se guardan relativos a este origen para que la cubeta vacía (0) quede en el pasado
+    private final long origin = System.nanoTime();
+
+    /**
+     * @param permitsPerSecond peticiones por segundo sostenidas de cada cliente
+     * @param burst peticiones que un cliente puede hacer seguidas tras estar inactivo
+     * @param buckets número de cubetas; se redondea a la potencia de dos siguiente
+     */
+    public ClientRateLimiter(double permitsPerSecond, int burst, int buckets) {
+        if (permitsPerSecond <= 0 || burst < 1 || buckets < 1) {
+            throw new IllegalArgumentException("La tasa, la ráfaga y el número de cubetas deben ser positivos");
+        }
+        int size = Integer.highestOneBit(Math.max(1, buckets - 1)) << 1;
+        this.arrivals = new AtomicLongArray(size * STRIDE);
+        this.mask = size - 1;
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.toleranceNanos = intervalNanos * (burst - 1);
+    }
+
+    /**
+     * Consume un permiso del cliente si lo tiene
+     * @param client dirección del cliente; null comparte una cubeta con los demás clientes desconocidos
+     * @return 0 si la petición se admite, o los nanosegundos que faltan para el siguiente permiso
+     */
+    public long tryAcquire(InetAddress client) {
+        return tryAcquire(client != null ? client.hashCode() : 0, System.nanoTime() - origin);
+    }
+
+    long tryAcquire(int key, long now) {
+        int index = bucket(key) * STRIDE;
+        while (true) {
+            long arrival = arrivals.get(index);
+            long next = Math.max(arrival, now);
+            long wait = next - now - toleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (arrivals.compareAndSet(index, arrival, next + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Mezcla los bits de la dirección: las IPv4 de una misma red solo difieren en los bits bajos
+     */
+    private int bucket(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
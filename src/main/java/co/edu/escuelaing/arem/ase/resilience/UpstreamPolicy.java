@@ -0,0 +1,149 @@
+package co.edu.escuelaing.arem.ase.resilience;
+
+import co.edu.escuelaing.arem.ase.AppConfig;
+import co.edu.escuelaing.arem.ase.metrics.Counter;
+import co.edu.escuelaing.arem.ase.metrics.Metrics;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Protecciones alrededor de las llamadas asíncronas a un servicio externo:
+ * <ul>
+ *     <li>un tiempo máximo por llamada, tras el cual el futuro falla con {@link TimeoutException}
+ *     y se pide a la llamada que aborte;</li>
+ *     <li>un bulkhead que limita las llamadas simultáneas y rechaza las que no caben en lugar de
+ *     encolarlas. Una llamada ocupa su plaza hasta que termina de verdad, también tras vencer su tiempo;</li>
+ *     <li>un {@link CircuitBreaker} que rechaza las llamadas mientras el servicio sigue fallando.</li>
+ * </ul>
+ * Las llamadas rechazadas fallan de inmediato con {@link CallNotPermittedException}.
+ */
+public final class UpstreamPolicy {
+    static final String TIMEOUT_KEY = "starwars.swapi.timeout-ms";
+    static final String MAX_CONCURRENT_KEY = "starwars.swapi.max-concurrent";
+    static final String FAILURE_THRESHOLD_KEY = "starwars.swapi.breaker.failure-threshold";
+    static final String OPEN_DURATION_KEY = "starwars.swapi.breaker.open-ms";
+    private static final String REJECTED = "starwars_upstream_rejected_total";
+    private static final String REJECTED_HELP = "Llamadas al servicio externo rechazadas sin hacerse";
+
+    private final Duration timeout;
+    private final int maxConcurrent;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker breaker;
+    private final Counter rejectedOpen;
+    private final Counter rejectedFull;
+
+    /**
+     * @param resource nombre del recurso, usado como etiqueta de las métricas
+     * @param timeout tiempo máximo de cada llamada
+     * @param maxConcurrent llamadas simultáneas permitidas
+     * @param breaker cortocircuito del servicio
+     */
+    public UpstreamPolicy(String resource, Duration timeout, int maxConcurrent, CircuitBreaker breaker) {
+        if (timeout.isNegative() || timeout.isZero() || maxConcurrent < 1) {
+            throw new IllegalArgumentException("El tiempo máximo y las llamadas simultáneas deben ser positivos");
+        }
+        this.timeout = timeout;
+        this.maxConcurrent = maxConcurrent;
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.breaker = breaker;
+        this.rejectedOpen = Metrics.counter(REJECTED, REJECTED_HELP, "resource", resource, "reason", "circuit_open");
+        this.rejectedFull = Metrics.counter(REJECTED, REJECTED_HELP, "resource", resource, "reason", "bulkhead_full");
+        Metrics.gauge("starwars_upstream_circuit_state", "Estado del cortocircuito: 0 cerrado, 1 abierto, 2 semiabierto",
+                () -> breaker.state().ordinal(), "resource", resource);
+    }
+
+    /**
+     * Crea la política con los valores de configuración {@code starwars.swapi.*}
+     * @param resource nombre del recurso, usado como etiqueta de las métricas
+     * @return la política
+     */
+    public static UpstreamPolicy fromConfig(String resource) {
+        return new UpstreamPolicy(resource,
+                Duration.ofMillis(AppConfig.getInt(TIMEOUT_KEY, 5000)),
+                AppConfig.getInt(MAX_CONCURRENT_KEY, 4),
+                new CircuitBreaker(AppConfig.getInt(FAILURE_THRESHOLD_KEY, 5),
+                        Duration.ofMillis(AppConfig.getInt(OPEN_DURATION_KEY, 30_000))));
+    }
+
+    /**
+     * Llamada que se puede abortar cuando excede el tiempo máximo
+     */
+    @FunctionalInterface
+    public interface Call<T> {
+        /**
+         * Inicia la llamada
+         * @param aborted futuro que se completa si la llamada excede el tiempo máximo; la llamada
+         *     debe entonces cancelar la petición y cerrar el cuerpo para terminar cuanto antes
+         * @return futuro que se completa cuando la llamada termina, aunque ya se haya abortado
+         */
+        CompletableFuture<T> start(CompletableFuture<Void> aborted);
+    }
+
+    /**
+     * Ejecuta una llamada con las protecciones de la política
+     * @param call llamada a iniciar; no se inicia si se rechaza
+     * @return futuro con el resultado de la llamada, o fallido si se rechaza o excede el tiempo
+     */
+    public <T> CompletableFuture<T> call(Call<T> call) {
+        if (!breaker.tryAcquirePermission()) {
+            rejectedOpen.increment();
+            return CompletableFuture.failedFuture(new CallNotPermittedException("El circuito hacia el servicio externo está abierto"));
+        }
+        if (!bulkhead.tryAcquire()) {
+            rejectedFull.increment();
+            breaker.releasePermission();
+            return CompletableFuture.failedFuture(new CallNotPermittedException("Demasiadas llamadas simultáneas al servicio externo"));
+        }
+        CompletableFuture<Void> aborted = new CompletableFuture<>();
+        CompletableFuture<T> result = new CompletableFuture<T>().orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        result.whenComplete((value, error) -> {
+            if (error instanceof TimeoutException) {
+                breaker.onFailure();
+                aborted.complete(null);
+            }
+        });
+        CompletableFuture<T> running;
+        try {
+            running = call.start(aborted);
+        } catch (RuntimeException e) {
+            running = CompletableFuture.failedFuture(e);
+        }
+        running.whenComplete((value, error) -> {
+            // La plaza se devuelve cuando la llamada termina, no cuando vence el tiempo: si no, las
+            // llamadas abortadas que aún no han soltado la conexión no contarían en el límite
+            bulkhead.release();
+            boolean first = error == null ? result.complete(value) : result.completeExceptionally(error);
+            if (!first) {
+                return;
+            }
+            if (error == null) {
+                breaker.onSuccess();
+            } else {
+                breaker.onFailure();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return tiempo máximo de cada llamada, para configurar también el cliente HTTP
+     */
+    public Duration timeout() {
+        return timeout;
+    }
+
+    /**
+     * @return llamadas simultáneas que admite el bulkhead, para no lanzar más de las que caben
+     */
+    public int maxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public CircuitBreaker.State circuitState() {
+        return breaker.state();
+    }
+}
@@ -0,0 +1,17 @@
+package co.edu.escuelaing.arem.ase.server;
+
+import java.io.IOException;
+
+/**
+ * Punto de entrada de la aplicación para cada petición recibida por un {@link ServerEngine}
+ */
+@FunctionalInterface
+public interface ExchangeHandler {
+    /**
+     * Atiende una petición. El manejador es responsable de cerrar el intercambio, ya sea antes de
+     * volver o más tarde desde otro hilo.
+     * @param exchange la petición y su respuesta
+     * @throws IOException si falla la escritura de la respuesta
+     */
+    void handle(ServerExchange exchange) throws IOException;
+}
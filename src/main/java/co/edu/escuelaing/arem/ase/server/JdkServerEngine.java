@@ -0,0 +1,128 @@
+package co.edu.escuelaing.arem.ase.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Motor basado en {@code com.sun.net.httpserver.HttpServer}, el servidor incluido en el JDK
+ */
+public final class JdkServerEngine implements ServerEngine {
+    private final int backlog;
+    private final Executor executor;
+    private HttpServer server;
+
+    /**
+     * @param backlog backlog del socket de escucha (0 para el valor del sistema)
+     * @param executor executor de las peticiones, o null para atenderlas en el hilo despachador
+     */
+    public JdkServerEngine(int backlog, Executor executor) {
+        this.backlog = backlog;
+        this.executor = executor;
+    }
+
+    @Override
+    public void start(InetSocketAddress address, ExchangeHandler handler) throws IOException {
+        server = HttpServer.create(address, backlog);
+        server.createContext("/", exchange -> handler.handle(new JdkExchange(exchange)));
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    @Override
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void stop() {
+        server.stop(0);
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    @Override
+    public String name() {
+        return "jdk";
+    }
+
+    /**
+     * Adaptador de {@link HttpExchange}
+     */
+    private static final class JdkExchange implements ServerExchange {
+        private final HttpExchange exchange;
+
+        private JdkExchange(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        @Override
+        public String method() {
+            return exchange.getRequestMethod();
+        }
+
+        @Override
+        public String path() {
+            return exchange.getRequestURI().getPath();
+        }
+
+        @Override
+        public String rawQuery() {
+            return exchange.getRequestURI().getRawQuery();
+        }
+
+        @Override
+        public InetAddress remoteAddress() {
+            InetSocketAddress remote = exchange.getRemoteAddress();
+            return remote != null ? remote.getAddress() : null;
+        }
+
+        @Override
+        public String requestHeader(String name) {
+            return exchange.getRequestHeaders().getFirst(name);
+        }
+
+        @Override
+        public void setResponseHeader(String name, String value) {
+            exchange.getResponseHeaders().set(name, value);
+        }
+
+        /**
+         * Para el JDK una longitud 0 significa cuerpo chunked, así que las respuestas vacías se
+         * envían con -1. Además, al enviar una respuesta sin cuerpo el servidor da por terminado
+         * el intercambio y cierra la conexión si el cuerpo de la petición no se ha consumido, así
+         * que se consume antes para que la conexión siga viva.
+         */
+        @Override
+        public void sendResponseHeaders(int status, long contentLength) throws IOException {
+            if (contentLength <= 0) {
+                exchange.getRequestBody().close();
+                exchange.sendResponseHeaders(status, -1);
+            } else {
+                exchange.sendResponseHeaders(status, contentLength);
+            }
+        }
+
+        @Override
+        public OutputStream responseBody() {
+            return exchange.getResponseBody();
+        }
+
+        @Override
+        public int responseCode() {
+            return exchange.getResponseCode();
+        }
+
+        @Override
+        public void close() {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package co.edu.escuelaing.arem.ase.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Conexión HTTP/1.1 de un bucle de eventos. Atiende una petición cada vez: mientras hay una
+ * respuesta pendiente deja de leer, y al terminar de escribirla continúa con las peticiones que
+ * el cliente haya encadenado en el búfer. El manejador se ejecuta en el executor de trabajo, si
+ * lo hay, y la respuesta llega por tramos con {@link #send}. Todos los métodos salvo
+ * {@link #send}, {@link #abort} e {@link #inEventLoop} se ejecutan en el hilo del bucle.
+ */
+final class NioConnection {
+    private static final Logger logger = Logger.getLogger(NioConnection.class.getName());
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+    // Límites equivalentes a los del servidor del JDK: 200 cabeceras y una cabecera de tamaño razonable
+    private static final int MAX_HEAD_SIZE = 16 * 1024;
+    private static final int MAX_HEADERS = 200;
+    private static final int MAX_BODY_SIZE = 1024 * 1024;
+
+    private final NioServerEngine.EventLoop loop;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final ExchangeHandler handler;
+    private final Executor executor;
+    private final InetAddress remoteAddress;
+    private ByteBuffer in = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    // Posición desde la que seguir buscando el fin de las cabeceras tras una lectura parcial
+    private int scanFrom;
+    private NioExchange current;
+    // Tramos de la respuesta en curso pendientes de escribir en el socket
+    private final ArrayDeque<ByteBuffer> output = new ArrayDeque<>();
+    private boolean responseComplete;
+    private boolean closeAfterWrite;
+    private boolean dispatching;
+    private long lastActive = System.nanoTime();
+
+    NioConnection(NioServerEngine.EventLoop loop, SocketChannel channel, SelectionKey key,
+                  ExchangeHandler handler, Executor executor) {
+        this.loop = loop;
+        this.channel = channel;
+        this.key = key;
+        this.handler = handler;
+        this.executor = executor;
+        this.remoteAddress = remoteAddressOf(channel);
+    }
+
+    private static InetAddress remoteAddressOf(SocketChannel channel) {
+        try {
+            SocketAddress remote = channel.getRemoteAddress();
+            return remote instanceof InetSocketAddress ? ((InetSocketAddress) remote).getAddress() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return dirección del cliente, leída al aceptar la conexión
+     */
+    InetAddress remoteAddress() {
+        return remoteAddress;
+    }
+
+    void onReady(int readyOps) {
+        try {
+            if ((readyOps & SelectionKey.OP_WRITE) != 0) {
+                flush();
+            }
+            if ((readyOps & SelectionKey.OP_READ) != 0 && key.isValid()) {
+                read();
+            }
+        } catch (IOException e) {
+            // El cliente cerró o reinició la conexión
+            close();
+        }
+    }
+
+    private void read() throws IOException {
+        if (!in.hasRemaining()) {
+            in = ByteBuffer.wrap(Arrays.copyOf(in.array(), in.capacity() * 2)).position(in.position());
+        }
+        int read = channel.read(in);
+        if (read < 0) {
+            close();
+            return;
+        }
+        lastActive = System.nanoTime();
+        processRequests();
+    }
+
+    /**
+     * Analiza y despacha las peticiones completas del búfer, una cada vez
+     */
+    private void processRequests() {
+        dispatching = true;
+        try {
+            while (current == null && output.isEmpty() && key.isValid()) {
+                NioExchange exchange = parseRequest();
+                if (exchange == null) {
+                    return;
+                }
+                current = exchange;
+                key.interestOps(0);
+                dispatch(exchange);
+            }
+        } finally {
+            dispatching = false;
+        }
+    }
+
+    /**
+     * Ejecuta el manejador en el executor de trabajo, para que una ruta que bloquea (lectura de
+     * disco, compresión) no frene al resto de conexiones del bucle; sin executor se ejecuta aquí
+     */
+    private void dispatch(NioExchange exchange) {
+        if (executor == null) {
+            handle(exchange);
+            return;
+        }
+        try {
+            executor.execute(() -> handle(exchange));
+        } catch (RejectedExecutionException e) {
+            reject(503, "Service Unavailable");
+        }
+    }
+
+    private void handle(NioExchange exchange) {
+        try {
+            handler.handle(exchange);
+        } catch (IOException | RuntimeException e) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "Error al atender la petición", e);
+            }
+            abort();
+        }
+    }
+
+    /**
+     * Extrae la siguiente petición completa del búfer
+     * @return la petición, o null si aún faltan bytes o la conexión se cerró por una petición inválida
+     */
+    private NioExchange parseRequest() {
+        byte[] buf = in.array();
+        int limit = in.position();
+        int headEnd = indexOfHeadEnd(buf, Math.max(0, scanFrom - 3), limit);
+        if (headEnd < 0) {
+            scanFrom = limit;
+            if (limit >= MAX_HEAD_SIZE) {
+                reject(431, "Request Header Fields Too Large");
+            }
+            return null;
+        }
+
+        int lineEnd = indexOfLineEnd(buf, 0, headEnd);
+        String[] requestLine = new String(buf, 0, lineEnd, StandardCharsets.ISO_8859_1).split(" ");
+        if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+            reject(400, "Bad Request");
+            return null;
+        }
+
+        List<String> headers = new ArrayList<>(16);
+        long contentLength = 0;
+        String connectionHeader = null;
+        int lineStart = lineEnd + 2;
+        while (lineStart < headEnd - 2) {
+            lineEnd = indexOfLineEnd(buf, lineStart, headEnd);
+            String line = new String(buf, lineStart, lineEnd - lineStart, StandardCharsets.ISO_8859_1);
+            lineStart = lineEnd + 2;
+            int colon = line.indexOf(':');
+            if (colon <= 0 || headers.size() >= MAX_HEADERS * 2) {
+                reject(400, "Bad Request");
+                return null;
+            }
+            String name = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            if (name.equalsIgnoreCase("Content-Length")) {
+                try {
+                    contentLength = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    contentLength = -1;
+                }
+                if (contentLength < 0) {
+                    reject(400, "Bad Request");
+                    return null;
+                }
+            } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                // Ninguna ruta recibe cuerpos, así que no se implementa el cuerpo chunked
+                reject(501, "Not Implemented");
+                return null;
+            } else if (name.equalsIgnoreCase("Connection")) {
+                connectionHeader = value;
+            }
+            headers.add(name);
+            headers.add(value);
+        }
+
+        if (contentLength > MAX_BODY_SIZE) {
+            reject(413, "Payload Too Large");
+            return null;
+        }
+        int requestEnd = headEnd + (int) contentLength;
+        if (requestEnd > limit) {
+            if (requestEnd > buf.length) {
+                in = ByteBuffer.wrap(Arrays.copyOf(buf, requestEnd)).position(limit);
+            }
+            return null;
+        }
+
+        URI target;
+        try {
+            target = new URI(requestLine[1]);
+        } catch (URISyntaxException e) {
+            reject(400, "Bad Request");
+            return null;
+        }
+        if (target.getRawPath() == null || target.getRawPath().isEmpty()) {
+            reject(400, "Bad Request");
+            return null;
+        }
+
+        // El cuerpo se descarta: se conservan solo los bytes de las peticiones siguientes
+        System.arraycopy(buf, requestEnd, buf, 0, limit - requestEnd);
+        in.position(limit - requestEnd);
+        scanFrom = 0;
+
+        boolean keepAlive = requestLine[2].equals("HTTP/1.1")
+                ? !hasToken(connectionHeader, "close")
+                : hasToken(connectionHeader, "keep-alive");
+        return new NioExchange(this, requestLine[0], target.getPath(), target.getRawQuery(),
+                headers.toArray(new String[0]), keepAlive);
+    }
+
+    private static int indexOfHeadEnd(byte[] buf, int from, int limit) {
+        for (int i = from; i + 3 < limit; i++) {
+            if (buf[i] == '\r' && buf[i + 1] == '\n' && buf[i + 2] == '\r' && buf[i + 3] == '\n') {
+                return i + 4;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOfLineEnd(byte[] buf, int from, int limit) {
+        for (int i = from; i + 1 < limit; i++) {
+            if (buf[i] == '\r' && buf[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    private static boolean hasToken(String header, String token) {
+        if (header == null) {
+            return false;
+        }
+        for (String part : header.split(",")) {
+            if (part.trim().equalsIgnoreCase(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Responde a una petición que no se puede atender y cierra la conexión
+     */
+    private void reject(int status, String reason) {
+        byte[] response = ("HTTP/1.1 " + status + " " + reason + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1);
+        current = null;
+        output.add(ByteBuffer.wrap(response));
+        responseComplete = true;
+        closeAfterWrite = true;
+        write();
+    }
+
+    /**
+     * Encola un tramo de la respuesta de un intercambio; puede llamarse desde cualquier hilo
+     * @param last true si con este tramo termina la respuesta
+     * @param keepAlive si la conexión sigue abierta al terminar la respuesta
+     */
+    void send(NioExchange exchange, ByteBuffer[] buffers, boolean last, boolean keepAlive) {
+        if (loop.inEventLoop()) {
+            enqueue(exchange, buffers, last, keepAlive);
+        } else {
+            loop.execute(() -> {
+                try {
+                    enqueue(exchange, buffers, last, keepAlive);
+                } catch (RuntimeException e) {
+                    // Un fallo de esta respuesta cierra solo su conexión, no el bucle
+                    if (logger.isLoggable(Level.WARNING)) {
+                        logger.log(Level.WARNING, "Error al encolar la respuesta; se cierra la conexión", e);
+                    }
+                    close();
+                }
+            });
+        }
+    }
+
+    boolean inEventLoop() {
+        return loop.inEventLoop();
+    }
+
+    /**
+     * Cierra la conexión de un intercambio que terminó sin respuesta; puede llamarse desde cualquier hilo
+     */
+    void abort() {
+        if (loop.inEventLoop()) {
+            close();
+        } else {
+            loop.execute(this::close);
+        }
+    }
+
+    private void enqueue(NioExchange exchange, ByteBuffer[] buffers, boolean last, boolean keepAlive) {
+        if (exchange != current || !channel.isOpen()) {
+            exchange.abandon();
+            return;
+        }
+        Collections.addAll(output, buffers);
+        if (last) {
+            responseComplete = true;
+            closeAfterWrite = !keepAlive;
+        }
+        // Con escritura pendiente el socket está lleno: se espera a OP_WRITE
+        if (key.interestOps() != SelectionKey.OP_WRITE) {
+            write();
+        }
+    }
+
+    private void write() {
+        try {
+            flush();
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    private void flush() throws IOException {
+        if (!output.isEmpty()) {
+            long written = channel.write(output.toArray(new ByteBuffer[0]));
+            while (!output.isEmpty() && !output.peek().hasRemaining()) {
+                output.poll();
+            }
+            if (current != null) {
+                current.sent(written);
+            }
+            if (!output.isEmpty()) {
+                key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+        }
+        if (!responseComplete) {
+            // El manejador aún no terminó: se espera al siguiente tramo sin leer más peticiones
+            key.interestOps(0);
+            return;
+        }
+        responseComplete = false;
+        current = null;
+        lastActive = System.nanoTime();
+        if (closeAfterWrite) {
+            close();
+            return;
+        }
+        key.interestOps(SelectionKey.OP_READ);
+        if (!dispatching && in.position() > 0) {
+            processRequests();
+        }
+    }
+
+    /**
+     * @return true si no hay ninguna petición en curso y la conexión lleva inactiva más que el límite
+     */
+    boolean isIdle(long now, long idleTimeoutNanos) {
+        return current == null && output.isEmpty() && now - lastActive > idleTimeoutNanos;
+    }
+
+    void close() {
+        key.cancel();
+        closeQuietly(channel);
+        output.clear();
+        if (current != null) {
+            current.abandon();
+        }
+    }
+
+    static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nada más que hacer al cerrar
+        }
+    }
+}
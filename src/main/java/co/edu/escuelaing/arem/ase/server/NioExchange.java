@@ -0,0 +1,295 @@
+package co.edu.escuelaing.arem.ase.server;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Intercambio del motor NIO. El cuerpo se entrega a la conexión por tramos según lo escribe el
+ * manejador, y la conexión los escribe desde su bucle de eventos; cerrar el intercambio marca el
+ * final de la respuesta.
+ */
+final class NioExchange implements ServerExchange {
+    // Bytes sin enviar a partir de los cuales el manejador espera al cliente
+    private static final long MAX_UNSENT = 256 * 1024;
+
+    private final NioConnection connection;
+    private final String method;
+    private final String path;
+    private final String rawQuery;
+    // Pares nombre, valor en el orden recibido
+    private final String[] requestHeaders;
+    private final boolean keepAlive;
+    private final List<String> responseHeaders = new ArrayList<>(16);
+    private final ResponseBody body = new ResponseBody();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile int status = -1;
+    private long contentLength;
+    // Bytes entregados a la conexión que aún no llegaron al socket, protegidos por this
+    private long unsent;
+    private boolean abandoned;
+
+    NioExchange(NioConnection connection, String method, String path, String rawQuery, String[] requestHeaders, boolean keepAlive) {
+        this.connection = connection;
+        this.method = method;
+        this.path = path;
+        this.rawQuery = rawQuery;
+        this.requestHeaders = requestHeaders;
+        this.keepAlive = keepAlive;
+    }
+
+    @Override
+    public String method() {
+        return method;
+    }
+
+    @Override
+    public String path() {
+        return path;
+    }
+
+    @Override
+    public String rawQuery() {
+        return rawQuery;
+    }
+
+    @Override
+    public InetAddress remoteAddress() {
+        return connection.remoteAddress();
+    }
+
+    @Override
+    public String requestHeader(String name) {
+        for (int i = 0; i < requestHeaders.length; i += 2) {
+            if (requestHeaders[i].equalsIgnoreCase(name)) {
+                return requestHeaders[i + 1];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void setResponseHeader(String name, String value) {
+        for (int i = 0; i < responseHeaders.size(); i += 2) {
+            if (responseHeaders.get(i).equalsIgnoreCase(name)) {
+                responseHeaders.set(i + 1, value);
+                return;
+            }
+        }
+        responseHeaders.add(name);
+        responseHeaders.add(value);
+    }
+
+    @Override
+    public void sendResponseHeaders(int status, long contentLength) throws IOException {
+        if (this.status != -1) {
+            throw new IOException("Las cabeceras de la respuesta ya se enviaron");
+        }
+        this.contentLength = Math.max(contentLength, 0);
+        this.status = status;
+    }
+
+    @Override
+    public OutputStream responseBody() {
+        return body;
+    }
+
+    @Override
+    public int responseCode() {
+        return status;
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        if (status == -1) {
+            connection.abort();
+            return;
+        }
+        // Un cuerpo de longitud distinta a la anunciada deja la conexión desincronizada: se cierra
+        boolean complete = !body.overflowed && body.written == contentLength;
+        try {
+            if (body.headSent) {
+                send(new ByteBuffer[0], true, keepAlive && complete);
+            } else {
+                send(new ByteBuffer[]{ByteBuffer.wrap(encodeHead(keepAlive && complete))}, true, keepAlive && complete);
+            }
+        } catch (IOException e) {
+            // La conexión ya se cerró
+        }
+    }
+
+    /**
+     * Entrega búferes a la conexión. Fuera del bucle espera mientras haya demasiados bytes sin
+     * enviar, para que un cliente lento frene al manejador en vez de acumular el cuerpo en memoria;
+     * en el propio bucle no puede esperar porque es quien los envía.
+     */
+    private void send(ByteBuffer[] buffers, boolean last, boolean keepAlive) throws IOException {
+        long size = 0;
+        for (ByteBuffer buffer : buffers) {
+            size += buffer.remaining();
+        }
+        synchronized (this) {
+            if (!connection.inEventLoop()) {
+                while (unsent >= MAX_UNSENT && !abandoned) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrumpido mientras se enviaba la respuesta");
+                    }
+                }
+            }
+            if (abandoned) {
+                throw new IOException("La conexión se cerró");
+            }
+            unsent += size;
+        }
+        connection.send(this, buffers, last, keepAlive);
+    }
+
+    /**
+     * La conexión escribió en el socket bytes de este intercambio
+     */
+    synchronized void sent(long bytes) {
+        unsent -= bytes;
+        if (unsent < MAX_UNSENT) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * La conexión se cerró: las escrituras pendientes y las siguientes fallan
+     */
+    synchronized void abandon() {
+        abandoned = true;
+        notifyAll();
+    }
+
+    private byte[] encodeHead(boolean keepAlive) {
+        StringBuilder head = new StringBuilder(128 + responseHeaders.size() * 24);
+        head.append("HTTP/1.1 ").append(status).append(' ').append(reasonPhrase(status)).append("\r\n");
+        head.append("Date: ").append(NioServerEngine.httpDate()).append("\r\n");
+        for (int i = 0; i < responseHeaders.size(); i += 2) {
+            head.append(responseHeaders.get(i)).append(": ").append(responseHeaders.get(i + 1)).append("\r\n");
+        }
+        if (status >= 200 && status != 204 && status != 304) {
+            head.append("Content-Length: ").append(contentLength).append("\r\n");
+        }
+        if (!keepAlive) {
+            head.append("Connection: close\r\n");
+        }
+        head.append("\r\n");
+        return head.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static String reasonPhrase(int status) {
+        switch (status) {
+            case 200: return "OK";
+            case 204: return "No Content";
+            case 206: return "Partial Content";
+            case 304: return "Not Modified";
+            case 400: return "Bad Request";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 416: return "Range Not Satisfiable";
+            case 429: return "Too Many Requests";
+            case 500: return "Internal Server Error";
+            case 502: return "Bad Gateway";
+            case 503: return "Service Unavailable";
+            case 504: return "Gateway Timeout";
+            default: return "";
+        }
+    }
+
+    /**
+     * Cuerpo que se envía a medida que se escribe: los arreglos se copian, porque quien llama
+     * puede reutilizarlos, y los búferes de solo lectura, como un archivo mapeado, se envían tal
+     * cual. Las cabeceras salen junto con el primer tramo.
+     */
+    private final class ResponseBody extends OutputStream implements WritableByteChannel {
+        private long written;
+        private boolean overflowed;
+        private boolean headSent;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            int accepted = accept(len);
+            if (accepted > 0) {
+                sendChunk(ByteBuffer.wrap(Arrays.copyOfRange(b, off, off + accepted)));
+            }
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int length = src.remaining();
+            int accepted = accept(length);
+            if (accepted > 0) {
+                ByteBuffer chunk;
+                if (src.isReadOnly()) {
+                    chunk = src.slice().limit(accepted);
+                } else {
+                    chunk = ByteBuffer.allocate(accepted);
+                    chunk.put(src.duplicate().limit(src.position() + accepted)).flip();
+                }
+                sendChunk(chunk);
+            }
+            src.position(src.limit());
+            return length;
+        }
+
+        /**
+         * @return cuántos de los bytes caben en la longitud anunciada; el resto se descarta
+         */
+        private int accept(int length) throws IOException {
+            if (status == -1) {
+                throw new IOException("Las cabeceras de la respuesta aún no se enviaron");
+            }
+            if (closed.get()) {
+                throw new IOException("El intercambio ya terminó");
+            }
+            int accepted = (int) Math.min(length, contentLength - written);
+            if (accepted < length) {
+                overflowed = true;
+            }
+            written += accepted;
+            return accepted;
+        }
+
+        private void sendChunk(ByteBuffer chunk) throws IOException {
+            if (headSent) {
+                send(new ByteBuffer[]{chunk}, false, keepAlive);
+            } else {
+                headSent = true;
+                send(new ByteBuffer[]{ByteBuffer.wrap(encodeHead(keepAlive)), chunk}, false, keepAlive);
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return !closed.get();
+        }
+
+        @Override
+        public void close() {
+            // Lo cierra el intercambio
+        }
+    }
+}
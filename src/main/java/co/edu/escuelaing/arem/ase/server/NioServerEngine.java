@@ -0,0 +1,357 @@
+package co.edu.escuelaing.arem.ase.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Motor HTTP/1.1 sobre {@code java.nio} con un bucle de eventos (un {@link Selector}) por hilo.
+ * Cada bucle lee, analiza y escribe sus conexiones sin bloquear. El manejador se ejecuta en el
+ * executor de trabajo, porque algunas rutas bloquean (archivos estáticos fuera de la caché,
+ * compresión); sin executor se ejecuta en el propio bucle y ninguna ruta debe bloquear.
+ * <p>
+ * Donde el sistema soporta {@code SO_REUSEPORT} cada bucle abre su propio socket de escucha en el
+ * mismo puerto y el núcleo reparte las conexiones entre ellos; si no, el primer bucle acepta y
+ * reparte las conexiones en turno rotatorio.
+ */
+public final class NioServerEngine implements ServerEngine {
+    private static final Logger logger = Logger.getLogger(NioServerEngine.class.getName());
+    // Cada cuánto despierta un bucle sin actividad para cerrar las conexiones ociosas
+    private static final long SELECT_TIMEOUT_MS = 1000;
+    // Pausa del aceptador tras un fallo de accept(), p. ej. al agotar los descriptores
+    private static final long ACCEPT_BACKOFF_MS = 100;
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+    private static volatile CachedDate cachedDate = new CachedDate(0, "");
+
+    private final int eventLoopCount;
+    private final int backlog;
+    private final long idleTimeoutNanos;
+    private final Executor executor;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private EventLoop[] eventLoops;
+    private boolean reusePort;
+    private int port;
+
+    /**
+     * @param eventLoops número de bucles de eventos, normalmente uno por núcleo
+     * @param backlog backlog de cada socket de escucha (0 para el valor del sistema)
+     * @param idleTimeout tiempo tras el que se cierra una conexión keep-alive sin peticiones
+     * @param executor executor de las peticiones, o null para atenderlas en el bucle de eventos
+     */
+    public NioServerEngine(int eventLoops, int backlog, Duration idleTimeout, Executor executor) {
+        if (eventLoops < 1) {
+            throw new IllegalArgumentException("Se necesita al menos un bucle de eventos");
+        }
+        this.eventLoopCount = eventLoops;
+        this.backlog = backlog;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.executor = executor;
+    }
+
+    @Override
+    public void start(InetSocketAddress address, ExchangeHandler handler) throws IOException {
+        reusePort = eventLoopCount > 1 && supportsReusePort();
+        eventLoops = new EventLoop[eventLoopCount];
+        InetSocketAddress bindAddress = address;
+        try {
+            for (int i = 0; i < eventLoops.length; i++) {
+                ServerSocketChannel acceptor = null;
+                if (i == 0 || reusePort) {
+                    acceptor = openAcceptor(bindAddress);
+                    if (i == 0) {
+                        // Con puerto 0 los demás sockets deben unirse al puerto que eligió el primero
+                        port = ((InetSocketAddress) acceptor.getLocalAddress()).getPort();
+                        bindAddress = new InetSocketAddress(address.getAddress(), port);
+                    }
+                }
+                eventLoops[i] = new EventLoop(i, acceptor, handler);
+            }
+        } catch (IOException e) {
+            closeLoops();
+            throw e;
+        }
+        for (EventLoop loop : eventLoops) {
+            loop.thread.start();
+        }
+        if (logger.isLoggable(Level.FINE)) {
+            logger.log(Level.FINE, "Motor NIO con {0} bucles de eventos (SO_REUSEPORT: {1})", new Object[]{eventLoopCount, reusePort});
+        }
+    }
+
+    private ServerSocketChannel openAcceptor(InetSocketAddress address) throws IOException {
+        ServerSocketChannel acceptor = ServerSocketChannel.open();
+        try {
+            acceptor.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            if (reusePort) {
+                acceptor.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            acceptor.bind(address, backlog);
+            acceptor.configureBlocking(false);
+            return acceptor;
+        } catch (IOException e) {
+            acceptor.close();
+            throw e;
+        }
+    }
+
+    private static boolean supportsReusePort() {
+        try (ServerSocketChannel probe = ServerSocketChannel.open()) {
+            return probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public int port() {
+        return port;
+    }
+
+    @Override
+    public void stop() {
+        for (EventLoop loop : eventLoops) {
+            loop.running = false;
+            loop.selector.wakeup();
+        }
+        for (EventLoop loop : eventLoops) {
+            try {
+                loop.thread.join(SELECT_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    private void closeLoops() {
+        for (EventLoop loop : eventLoops) {
+            if (loop != null) {
+                loop.closeAll();
+            }
+        }
+    }
+
+    @Override
+    public String name() {
+        return "nio";
+    }
+
+    /**
+     * Bucle al que se entrega una conexión aceptada por {@code acceptor}: el mismo con
+     * {@code SO_REUSEPORT}, y en turno rotatorio si solo hay un socket de escucha
+     */
+    private EventLoop loopFor(EventLoop acceptor) {
+        if (reusePort || eventLoops.length == 1) {
+            return acceptor;
+        }
+        return eventLoops[Math.floorMod(nextLoop.getAndIncrement(), eventLoops.length)];
+    }
+
+    /**
+     * Valor de la cabecera Date, recalculado como mucho una vez por segundo
+     */
+    static String httpDate() {
+        long second = System.currentTimeMillis() / 1000;
+        CachedDate date = cachedDate;
+        if (date.second != second) {
+            date = new CachedDate(second, HTTP_DATE.format(Instant.ofEpochSecond(second)));
+            cachedDate = date;
+        }
+        return date.value;
+    }
+
+    private static final class CachedDate {
+        private final long second;
+        private final String value;
+
+        private CachedDate(long second, String value) {
+            this.second = second;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Hilo con su selector. Las tareas de otros hilos (respuestas completadas por un futuro,
+     * conexiones repartidas por el aceptador) se encolan y se ejecutan en el bucle.
+     */
+    final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final ServerSocketChannel acceptor;
+        private final ExchangeHandler handler;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final Thread thread;
+        private volatile boolean running = true;
+        private long nextIdleSweep;
+        // Momento (System.nanoTime) en que se vuelve a aceptar tras un fallo, o 0 si se acepta
+        private long acceptResumesAt;
+
+        private EventLoop(int index, ServerSocketChannel acceptor, ExchangeHandler handler) throws IOException {
+            this.selector = Selector.open();
+            this.acceptor = acceptor;
+            this.handler = handler;
+            if (acceptor != null) {
+                acceptor.register(selector, SelectionKey.OP_ACCEPT);
+            }
+            this.thread = new Thread(this, "nio-event-loop-" + index);
+        }
+
+        /**
+         * Ejecuta la tarea en el hilo del bucle
+         */
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        boolean inEventLoop() {
+            return Thread.currentThread() == thread;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select(acceptResumesAt != 0 ? ACCEPT_BACKOFF_MS : SELECT_TIMEOUT_MS);
+                    runTasks();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (key.isValid()) {
+                            processKey(key);
+                        }
+                    }
+                    closeIdleConnections();
+                    resumeAccepting();
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                // Solo un selector roto detiene el bucle; los fallos de una conexión la cierran a ella
+                if (logger.isLoggable(Level.SEVERE)) {
+                    logger.log(Level.SEVERE, "Error en el selector del bucle de eventos", e);
+                }
+            } finally {
+                closeAll();
+            }
+        }
+
+        private void processKey(SelectionKey key) {
+            if (key.isAcceptable()) {
+                accept(key);
+                return;
+            }
+            NioConnection connection = (NioConnection) key.attachment();
+            try {
+                connection.onReady(key.readyOps());
+            } catch (RuntimeException e) {
+                if (logger.isLoggable(Level.WARNING)) {
+                    logger.log(Level.WARNING, "Error al atender una conexión; se cierra", e);
+                }
+                connection.close();
+            }
+        }
+
+        private void runTasks() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    if (logger.isLoggable(Level.WARNING)) {
+                        logger.log(Level.WARNING, "Error en una tarea del bucle de eventos", e);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Acepta las conexiones pendientes. Si falla (p. ej. sin descriptores libres) deja de
+         * escuchar un momento en vez de reintentar en cada vuelta del bucle
+         */
+        private void accept(SelectionKey acceptKey) {
+            try {
+                SocketChannel channel;
+                while ((channel = acceptor.accept()) != null) {
+                    EventLoop target = loopFor(this);
+                    if (target == this) {
+                        register(channel);
+                    } else {
+                        SocketChannel accepted = channel;
+                        target.execute(() -> target.register(accepted));
+                    }
+                }
+            } catch (IOException e) {
+                if (logger.isLoggable(Level.WARNING)) {
+                    logger.log(Level.WARNING, "Error al aceptar conexiones; se reintenta en {0} ms", ACCEPT_BACKOFF_MS);
+                }
+                acceptKey.interestOps(0);
+                acceptResumesAt = System.nanoTime() + ACCEPT_BACKOFF_MS * 1_000_000;
+            }
+        }
+
+        private void resumeAccepting() {
+            if (acceptResumesAt != 0 && System.nanoTime() - acceptResumesAt >= 0) {
+                acceptResumesAt = 0;
+                acceptor.keyFor(selector).interestOps(SelectionKey.OP_ACCEPT);
+            }
+        }
+
+        private void register(SocketChannel channel) {
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new NioConnection(this, channel, key, handler, executor));
+            } catch (IOException e) {
+                NioConnection.closeQuietly(channel);
+            }
+        }
+
+        private void closeIdleConnections() {
+            long now = System.nanoTime();
+            if (now - nextIdleSweep < 0) {
+                return;
+            }
+            nextIdleSweep = now + SELECT_TIMEOUT_MS * 1_000_000;
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof NioConnection) {
+                    NioConnection connection = (NioConnection) key.attachment();
+                    if (connection.isIdle(now, idleTimeoutNanos)) {
+                        connection.close();
+                    }
+                }
+            }
+        }
+
+        private void closeAll() {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof NioConnection) {
+                    ((NioConnection) key.attachment()).close();
+                }
+            }
+            if (acceptor != null) {
+                NioConnection.closeQuietly(acceptor);
+            }
+            NioConnection.closeQuietly(selector);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package co.edu.escuelaing.arem.ase.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * Motor HTTP sobre el que se ejecuta la aplicación. La capa de rutas solo conoce
+ * {@link ServerExchange}, así que el motor puede elegirse al arrancar.
+ */
+public interface ServerEngine {
+
+    /**
+     * Abre el puerto y empieza a atender peticiones
+     * @param address dirección de escucha; con puerto 0 se usa uno libre
+     * @param handler manejador de cada petición
+     * @throws IOException si no se puede abrir el puerto
+     */
+    void start(InetSocketAddress address, ExchangeHandler handler) throws IOException;
+
+    /**
+     * @return puerto en el que escucha el motor ya iniciado
+     */
+    int port();
+
+    /**
+     * Deja de aceptar conexiones y cierra las abiertas
+     */
+    void stop();
+
+    /**
+     * @return nombre del motor para los logs
+     */
+    String name();
+}
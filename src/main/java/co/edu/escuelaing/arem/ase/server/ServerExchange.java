@@ -0,0 +1,67 @@
+package co.edu.escuelaing.arem.ase.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+
+/**
+ * Intercambio petición/respuesta visto por la capa de rutas, independiente del motor HTTP que
+ * lo atiende. Las cabeceras de respuesta se fijan antes de {@link #sendResponseHeaders}, el
+ * cuerpo se escribe después en {@link #responseBody()} y {@link #close()} termina la respuesta;
+ * puede llamarse desde cualquier hilo, por ejemplo cuando se completa un futuro.
+ */
+public interface ServerExchange {
+
+    String method();
+
+    /**
+     * @return ruta de la petición ya decodificada, sin la query string
+     */
+    String path();
+
+    /**
+     * @return query string sin decodificar, o null si no hay
+     */
+    String rawQuery();
+
+    /**
+     * @return dirección IP del cliente que abrió la conexión, o null si ya no se conoce
+     */
+    InetAddress remoteAddress();
+
+    /**
+     * @param name nombre de la cabecera, sin distinguir mayúsculas
+     * @return primer valor de la cabecera o null si no viene
+     */
+    String requestHeader(String name);
+
+    /**
+     * Fija una cabecera de la respuesta, reemplazando el valor anterior si lo había
+     */
+    void setResponseHeader(String name, String value);
+
+    /**
+     * Envía la línea de estado y las cabeceras
+     * @param status código de estado
+     * @param contentLength longitud exacta del cuerpo, o -1 (o 0) si la respuesta no tiene cuerpo
+     * @throws IOException si no se pueden enviar o ya se enviaron
+     */
+    void sendResponseHeaders(int status, long contentLength) throws IOException;
+
+    /**
+     * @return flujo del cuerpo de la respuesta; no hace falta cerrarlo, lo cierra {@link #close()}.
+     * Si además es un {@link java.nio.channels.WritableByteChannel}, los búferes de solo lectura que
+     * se le escriban pueden enviarse sin copiarlos y no deben cambiar mientras dure la respuesta.
+     */
+    OutputStream responseBody();
+
+    /**
+     * @return código de estado enviado, o -1 si aún no se enviaron las cabeceras
+     */
+    int responseCode();
+
+    /**
+     * Termina el intercambio. Si no llegaron a enviarse cabeceras, se cierra la conexión.
+     */
+    void close();
+}
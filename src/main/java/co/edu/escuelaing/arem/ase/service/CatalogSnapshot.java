@@ -0,0 +1,137 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import co.edu.escuelaing.arem.ase.model.Movie;
+import co.edu.escuelaing.arem.ase.model.MovieJson;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Copia en disco del catálogo de películas para arrancar sin esperar a SWAPI.
+ * <p>
+ * El archivo es JSON compacto con la misma forma que la respuesta de SWAPI ({@code results}
+ * con los campos que usa {@link Movie}, codificados con {@link MovieJson}), así que se lee con
+ * {@link FilmsDecoder}. Se escribe
+ * en un archivo temporal del mismo directorio que luego se renombra de forma atómica: un
+ * lector nunca ve un archivo a medio escribir, ni siquiera si el proceso muere durante la escritura.
+ */
+final class CatalogSnapshot {
+    private final List<Movie> movies;
+    private final Instant savedAt;
+
+    private CatalogSnapshot(List<Movie> movies, Instant savedAt) {
+        this.movies = movies;
+        this.savedAt = savedAt;
+    }
+
+    /**
+     * Lee una copia del catálogo
+     * @param file archivo de la copia
+     * @return la copia, o null si el archivo no existe
+     * @throws IOException si el archivo no se puede leer o no es un JSON válido
+     */
+    static CatalogSnapshot read(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Instant savedAt = Files.getLastModifiedTime(file).toInstant();
+            return new CatalogSnapshot(FilmsDecoder.decode(reader), savedAt);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Escribe el catálogo reemplazando de forma atómica la copia anterior
+     * @param file archivo de la copia
+     * @param movies películas del catálogo
+     * @throws IOException si no se puede escribir
+     */
+    static void write(Path file, Collection<Movie> movies) throws IOException {
+        Path target = file.toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer contents = ByteBuffer.wrap(encode(movies));
+                while (contents.hasRemaining()) {
+                    channel.write(contents);
+                }
+                // Los datos deben estar en disco antes del renombrado que los hace visibles
+                channel.force(true);
+            }
+            moveIntoPlace(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Codifica las películas con el formato de la copia
+     * @param movies películas del catálogo
+     * @return JSON compacto en UTF-8
+     */
+    static byte[] encode(Collection<Movie> movies) {
+        byte[] prefix = ("{\"count\":" + movies.size() + ",\"results\":[").getBytes(StandardCharsets.US_ASCII);
+        int length = prefix.length + 2 + Math.max(0, movies.size() - 1);
+        for (Movie movie : movies) {
+            length += MovieJson.encodedLength(movie);
+        }
+        byte[] out = new byte[length];
+        System.arraycopy(prefix, 0, out, 0, prefix.length);
+        int pos = prefix.length;
+        for (Movie movie : movies) {
+            if (pos > prefix.length) {
+                out[pos++] = ',';
+            }
+            pos = MovieJson.write(movie, out, pos);
+        }
+        out[pos++] = ']';
+        out[pos] = '}';
+        return out;
+    }
+
+    /**
+     * Decodifica unas películas codificadas con {@link #encode(Collection)}
+     * @param payload JSON en UTF-8
+     * @return películas en el orden codificado
+     * @throws IOException si no es un JSON válido
+     */
+    static List<Movie> decode(byte[] payload) throws IOException {
+        return FilmsDecoder.decode(new InputStreamReader(new ByteArrayInputStream(payload), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Renombra un archivo temporal sobre el definitivo, de forma atómica si el sistema de archivos lo permite
+     */
+    static void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    List<Movie> movies() {
+        return movies;
+    }
+
+    /**
+     * @return instante en que se escribió la copia
+     */
+    Instant savedAt() {
+        return savedAt;
+    }
+}
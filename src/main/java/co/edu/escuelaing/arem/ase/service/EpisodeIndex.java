@@ -0,0 +1,74 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import co.edu.escuelaing.arem.ase.model.Movie;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Índice inmutable de películas por episode_id respaldado por un arreglo,
+ * de modo que cada búsqueda es O(1) y no reserva memoria.
+ */
+final class EpisodeIndex {
+    // Cota para el tamaño del arreglo; SWAPI usa episodios consecutivos y pequeños
+    static final int MAX_EPISODE_ID = 1024;
+
+    private final Movie[] byEpisode;
+    private final List<Movie> movies;
+
+    private EpisodeIndex(Movie[] byEpisode, List<Movie> movies) {
+        this.byEpisode = byEpisode;
+        this.movies = movies;
+    }
+
+    /**
+     * Construye el índice a partir de las películas decodificadas
+     * @param movies películas del catálogo
+     * @return índice nuevo; las películas con episodio fuera de rango se descartan
+     */
+    static EpisodeIndex of(Collection<Movie> movies) {
+        int maxEpisode = -1;
+        for (Movie movie : movies) {
+            if (isIndexable(movie)) {
+                maxEpisode = Math.max(maxEpisode, movie.getEpisodeId());
+            }
+        }
+
+        Movie[] byEpisode = new Movie[maxEpisode + 1];
+        for (Movie movie : movies) {
+            if (isIndexable(movie)) {
+                byEpisode[movie.getEpisodeId()] = movie;
+            }
+        }
+
+        List<Movie> ordered = Arrays.stream(byEpisode).filter(Objects::nonNull).toList();
+        return new EpisodeIndex(byEpisode, ordered);
+    }
+
+    private static boolean isIndexable(Movie movie) {
+        int episodeId = movie.getEpisodeId();
+        return episodeId >= 0 && episodeId < MAX_EPISODE_ID;
+    }
+
+    /**
+     * Busca una película por episodio
+     * @param episodeId episodio a buscar
+     * @return la película o null si no existe
+     */
+    Movie get(int episodeId) {
+        return episodeId >= 0 && episodeId < byEpisode.length ? byEpisode[episodeId] : null;
+    }
+
+    /**
+     * @return películas del índice ordenadas por episodio
+     */
+    List<Movie> movies() {
+        return movies;
+    }
+
+    int size() {
+        return movies.size();
+    }
+}
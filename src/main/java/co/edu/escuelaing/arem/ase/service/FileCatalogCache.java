@@ -0,0 +1,234 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Caché compartida en un directorio local, para varios procesos en la misma máquina o sobre un
+ * volumen compartido.
+ * <p>
+ * El catálogo se escribe en un temporal que se renombra de forma atómica, como
+ * {@link CatalogSnapshot}, y se lee sin bloqueos; mientras el archivo no cambie se devuelve la
+ * lectura anterior sin volver a leerlo. La concesión de refresco es un archivo con el nodo que
+ * la tiene y su caducidad, que se lee y reescribe con un bloqueo del sistema operativo sobre
+ * el propio archivo. La caducidad usa el reloj de pared porque se compara entre procesos.
+ */
+public final class FileCatalogCache implements SharedCatalogCache {
+    private static final String CATALOG_FILE = "catalog.bin";
+    private static final String LEASE_FILE = "refresh.lease";
+    private static final int FORMAT = 0x53574331;
+    // Los bloqueos de archivo son por proceso: dos hilos de la misma JVM deben excluirse antes de pedirlo
+    private static final Object LEASE_MONITOR = new Object();
+
+    private final Path catalogFile;
+    private final Path leaseFile;
+    private volatile Cached cached;
+
+    /**
+     * @param directory directorio compartido; se crea si no existe
+     * @throws IOException si el directorio no se puede crear
+     */
+    public FileCatalogCache(Path directory) throws IOException {
+        Path target = directory.toAbsolutePath();
+        Files.createDirectories(target);
+        this.catalogFile = target.resolve(CATALOG_FILE);
+        this.leaseFile = target.resolve(LEASE_FILE);
+    }
+
+    @Override
+    public SharedCatalog read() throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(catalogFile, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        Object version = versionOf(attributes);
+        Cached last = cached;
+        if (last != null && last.version.equals(version)) {
+            return last.catalog;
+        }
+        SharedCatalog catalog;
+        try (SeekableByteChannel channel = Files.newByteChannel(catalogFile)) {
+            catalog = readCatalog(new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel))), channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        cached = new Cached(version, catalog);
+        return catalog;
+    }
+
+    @Override
+    public boolean tryAcquireRefresh(String owner, Duration lease) throws IOException {
+        synchronized (LEASE_MONITOR) {
+            try (FileChannel channel = FileChannel.open(leaseFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    long now = System.currentTimeMillis();
+                    LeaseRecord current = readLease(channel);
+                    if (current != null && !current.owner.equals(owner) && current.expiresAt > now) {
+                        return false;
+                    }
+                    writeLease(channel, new LeaseRecord(owner, now + lease.toMillis()));
+                    return true;
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void publish(SharedCatalog catalog) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(catalog.payload().length + 128);
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.writeInt(FORMAT);
+            out.writeLong(catalog.publishedAt().toEpochMilli());
+            writeOptional(out, catalog.etag());
+            writeOptional(out, catalog.lastModified());
+            out.writeInt(catalog.payload().length);
+            out.write(catalog.payload());
+        }
+        Path temp = Files.createTempFile(catalogFile.getParent(), CATALOG_FILE, ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer contents = ByteBuffer.wrap(buffer.toByteArray());
+                while (contents.hasRemaining()) {
+                    channel.write(contents);
+                }
+                channel.force(true);
+            }
+            CatalogSnapshot.moveIntoPlace(temp, catalogFile);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public void releaseRefresh(String owner) throws IOException {
+        synchronized (LEASE_MONITOR) {
+            try (FileChannel channel = FileChannel.open(leaseFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    LeaseRecord current = readLease(channel);
+                    if (current != null && current.owner.equals(owner)) {
+                        channel.truncate(0);
+                    }
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Identifica una versión del archivo: el renombrado atómico crea un archivo nuevo, con otra clave
+     */
+    private static Object versionOf(BasicFileAttributes attributes) {
+        return Arrays.asList(attributes.fileKey(), attributes.lastModifiedTime(), attributes.size());
+    }
+
+    /**
+     * @param size tamaño del archivo; acota la longitud declarada del contenido, para que un
+     *     archivo dañado dé un {@link IOException} y no una reserva de memoria desmedida
+     */
+    private static SharedCatalog readCatalog(DataInputStream in, long size) throws IOException {
+        if (in.readInt() != FORMAT) {
+            throw new IOException("Formato de catálogo compartido desconocido");
+        }
+        Instant publishedAt = Instant.ofEpochMilli(in.readLong());
+        String etag = readOptional(in);
+        String lastModified = readOptional(in);
+        int length = in.readInt();
+        if (length < 0 || length > size) {
+            throw new IOException(String.format("Catálogo compartido dañado: contenido de %d bytes en un archivo de %d", length, size));
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return new SharedCatalog(publishedAt, etag, lastModified, payload);
+    }
+
+    private static void writeOptional(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readOptional(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static LeaseRecord readLease(FileChannel channel) throws IOException {
+        if (channel.size() == 0) {
+            return null;
+        }
+        ByteBuffer contents = ByteBuffer.allocate((int) channel.size());
+        while (contents.hasRemaining()) {
+            if (channel.read(contents, contents.position()) < 0) {
+                break;
+            }
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(contents.array()));
+            return new LeaseRecord(in.readUTF(), in.readLong());
+        } catch (EOFException e) {
+            // Un proceso murió a mitad de escribir la concesión: se considera libre
+            return null;
+        }
+    }
+
+    private static void writeLease(FileChannel channel, LeaseRecord lease) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.writeUTF(lease.owner);
+            out.writeLong(lease.expiresAt);
+        }
+        channel.truncate(0);
+        channel.position(0);
+        ByteBuffer contents = ByteBuffer.wrap(buffer.toByteArray());
+        while (contents.hasRemaining()) {
+            channel.write(contents);
+        }
+    }
+
+    private static final class LeaseRecord {
+        private final String owner;
+        private final long expiresAt;
+
+        private LeaseRecord(String owner, long expiresAt) {
+            this.owner = owner;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Cached {
+        private final Object version;
+        private final SharedCatalog catalog;
+
+        private Cached(Object version, SharedCatalog catalog) {
+            this.version = version;
+            this.catalog = catalog;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import co.edu.escuelaing.arem.ase.model.Movie;
+
+import java.util.List;
+
+/**
+ * Película con los personajes, planetas y naves que aparecen en ella. Las instancias salen del
+ * grafo de recursos y se reutilizan mientras no cambien ni la película ni el grafo, así que
+ * sirven como clave de las cachés de respuestas.
+ */
+public final class FilmDetails {
+    private final Movie movie;
+    private final List<SwapiResource> characters;
+    private final List<SwapiResource> planets;
+    private final List<SwapiResource> starships;
+
+    FilmDetails(Movie movie, List<SwapiResource> characters, List<SwapiResource> planets, List<SwapiResource> starships) {
+        this.movie = movie;
+        this.characters = characters;
+        this.planets = planets;
+        this.starships = starships;
+    }
+
+    public Movie movie() {
+        return movie;
+    }
+
+    public List<SwapiResource> characters() {
+        return characters;
+    }
+
+    public List<SwapiResource> planets() {
+        return planets;
+    }
+
+    public List<SwapiResource> starships() {
+        return starships;
+    }
+}
@@ -0,0 +1,28 @@
+package co.edu.escuelaing.arem.ase.service;
+
+/**
+ * Resultado de buscar una película con sus entidades relacionadas
+ */
+public final class FilmDetailsLookup {
+    private final FilmDetails details;
+    private final boolean stale;
+
+    FilmDetailsLookup(FilmDetails details, boolean stale) {
+        this.details = details;
+        this.stale = stale;
+    }
+
+    /**
+     * @return la película con sus relaciones, o null si el episodio no está en el catálogo
+     */
+    public FilmDetails details() {
+        return details;
+    }
+
+    /**
+     * @return true si el catálogo o el grafo de recursos estaban expirados
+     */
+    public boolean stale() {
+        return stale;
+    }
+}
@@ -0,0 +1,54 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import co.edu.escuelaing.arem.ase.model.Movie;
+import co.edu.escuelaing.arem.ase.model.MovieJson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodificador en streaming del listado de películas de SWAPI. Lee el cuerpo token a token
+ * con {@link JsonReader}, enlaza cada película con {@link MovieJson#read} y descarta sin
+ * materializar el resto (personajes, planetas, URLs...).
+ */
+final class FilmsDecoder {
+    private FilmsDecoder() {
+    }
+
+    /**
+     * Decodifica la página de películas
+     * @param reader cuerpo de la respuesta de /api/films/
+     * @return películas del campo results en el orden recibido
+     * @throws IOException si el cuerpo no se puede leer o no es un JSON válido
+     */
+    static List<Movie> decode(Reader reader) throws IOException {
+        List<Movie> movies = new ArrayList<>();
+        try (JsonReader json = new JsonReader(reader)) {
+            json.beginObject();
+            while (json.hasNext()) {
+                if ("results".equals(json.nextName()) && json.peek() == JsonToken.BEGIN_ARRAY) {
+                    readResults(json, movies);
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+        }
+        return movies;
+    }
+
+    private static void readResults(JsonReader json, List<Movie> movies) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            Movie movie = MovieJson.read(json);
+            if (movie != null) {
+                movies.add(movie);
+            }
+        }
+        json.endArray();
+    }
+}
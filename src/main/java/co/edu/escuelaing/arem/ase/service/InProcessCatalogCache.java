@@ -0,0 +1,55 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Caché compartida en memoria, para varias instancias de {@link MovieService} en un mismo
+ * proceso: pruebas y benchmarks que simulan réplicas sin archivos ni red
+ */
+public final class InProcessCatalogCache implements SharedCatalogCache {
+    private final AtomicReference<SharedCatalog> published = new AtomicReference<>();
+    private final AtomicReference<Lease> lease = new AtomicReference<>();
+
+    @Override
+    public SharedCatalog read() {
+        return published.get();
+    }
+
+    @Override
+    public boolean tryAcquireRefresh(String owner, Duration duration) {
+        while (true) {
+            Lease current = lease.get();
+            long now = System.nanoTime();
+            if (current != null && !current.owner.equals(owner) && current.expiresAt - now > 0) {
+                return false;
+            }
+            if (lease.compareAndSet(current, new Lease(owner, now + duration.toNanos()))) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void publish(SharedCatalog catalog) {
+        published.set(catalog);
+    }
+
+    @Override
+    public void releaseRefresh(String owner) {
+        Lease current = lease.get();
+        if (current != null && current.owner.equals(owner)) {
+            lease.compareAndSet(current, null);
+        }
+    }
+
+    private static final class Lease {
+        private final String owner;
+        private final long expiresAt;
+
+        private Lease(String owner, long expiresAt) {
+            this.owner = owner;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
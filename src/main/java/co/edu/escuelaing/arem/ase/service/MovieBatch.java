@@ -0,0 +1,33 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import co.edu.escuelaing.arem.ase.model.Movie;
+
+import java.util.List;
+
+/**
+ * Resultado de buscar varias películas con una sola lectura del catálogo
+ */
+public final class MovieBatch {
+    private final List<Movie> movies;
+    private final boolean stale;
+
+    MovieBatch(List<Movie> movies, boolean stale) {
+        this.movies = movies;
+        this.stale = stale;
+    }
+
+    /**
+     * @return películas encontradas; la lista del listado completo es la misma instancia
+     *     mientras no cambie el catálogo
+     */
+    public List<Movie> movies() {
+        return movies;
+    }
+
+    /**
+     * @return true si las películas salen de un catálogo expirado
+     */
+    public boolean stale() {
+        return stale;
+    }
+}
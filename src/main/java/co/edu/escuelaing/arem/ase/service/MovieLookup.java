@@ -0,0 +1,28 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import co.edu.escuelaing.arem.ase.model.Movie;
+
+/**
+ * Resultado de buscar una película en el catálogo
+ */
+public final class MovieLookup {
+    private final Movie movie;
+    private final boolean stale;
+
+    MovieLookup(Movie movie, boolean stale) {
+        this.movie = movie;
+        this.stale = stale;
+    }
+
+    public Movie movie() {
+        return movie;
+    }
+
+    /**
+     * @return true si la película sale de un catálogo expirado, porque SWAPI no respondió o el
+     *     refresco aún está en curso
+     */
+    public boolean stale() {
+        return stale;
+    }
+}
@@ -0,0 +1,16 @@
+package co.edu.escuelaing.arem.ase.service;
+
+/**
+ * El episodio pedido no está en el catálogo
+ */
+class MovieNotFoundException extends MovieServiceException {
+    private static final long serialVersionUID = 1L;
+
+    public MovieNotFoundException(String message) {
+        super(message);
+    }
+
+    public MovieNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,153 +1,908 @@
 package co.edu.escuelaing.arem.ase.service;
+import co.edu.escuelaing.arem.ase.AppConfig;
+import co.edu.escuelaing.arem.ase.metrics.CacheMetrics;
+import co.edu.escuelaing.arem.ase.metrics.Counter;
+import co.edu.escuelaing.arem.ase.metrics.LatencyHistogram;
+import co.edu.escuelaing.arem.ase.metrics.Metrics;
+import co.edu.escuelaing.arem.ase.resilience.CallNotPermittedException;
+import co.edu.escuelaing.arem.ase.resilience.UpstreamPolicy;
 import co.edu.escuelaing.arem.ase.model.Movie;
-import com.google.gson.*;
+import com.google.gson.stream.MalformedJsonException;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class MovieService {
     private static final String SWAPI_URL = "https://swapi.py4e.com/api/films/";
+    private static final String SWAPI_URL_KEY = "starwars.swapi.films-url";
+    private static final String SNAPSHOT_KEY = "starwars.catalog.snapshot";
+    private static final String SNAPSHOT_DISABLED = "none";
+    private static final String SHARED_DIR_KEY = "starwars.catalog.shared-dir";
+    private static final String GRAPH_EAGER_KEY = "starwars.graph.eager";
+    // Cada cuánto vuelve a leer la caché compartida un nodo que espera el refresco de otro
+    private static final long SHARED_POLL_MILLIS = 100;
+    private static final Duration DEFAULT_CATALOG_TTL = Duration.ofMinutes(30);
+    // Fracción del TTL a partir de la cual se refresca el catálogo en segundo plano
+    private static final double REFRESH_AHEAD_FACTOR = 0.8;
     private static final Logger logger = Logger.getLogger(MovieService.class.getName());
+    private static final CacheMetrics CATALOG_METRICS = CacheMetrics.of("catalog");
+    private static final LatencyHistogram UPSTREAM_LATENCY = Metrics.histogram("starwars_upstream_request_duration_seconds",
+            "Duración de las peticiones a SWAPI, incluida la decodificación del cuerpo", "resource", "films");
+    private static final Counter UPSTREAM_ERRORS = Metrics.counter("starwars_upstream_errors_total",
+            "Peticiones a SWAPI fallidas por error de red, estado HTTP o JSON inválido", "resource", "films");
+    private static final Counter UPSTREAM_BYTES = Metrics.counter("starwars_upstream_response_bytes_total",
+            "Bytes de cuerpo recibidos de SWAPI", "resource", "films");
+    private static final Counter NOT_MODIFIED = Metrics.counter("starwars_upstream_revalidations_total",
+            "Refrescos condicionales del catálogo según SWAPI responda 304 o un listado nuevo", "resource", "films", "result", "not_modified");
+    private static final Counter MODIFIED = Metrics.counter("starwars_upstream_revalidations_total",
+            "Refrescos condicionales del catálogo según SWAPI responda 304 o un listado nuevo", "resource", "films", "result", "modified");
+    private static final LatencyHistogram CATALOG_REBUILD = Metrics.histogram("starwars_catalog_rebuild_duration_seconds",
+            "Tiempo de leer, decodificar e indexar un listado nuevo; las respuestas 304 no reconstruyen nada");
+    private static final CacheMetrics GRAPH_METRICS = CacheMetrics.of("resource_graph");
+    // Campos de la búsqueda de texto completo; el título pesa más que el resto de metadatos y el texto inicial
+    private static final List<SearchIndex.Field<Movie>> SEARCH_FIELDS = List.of(
+            new SearchIndex.Field<>(Movie::getTitle, 4),
+            new SearchIndex.Field<>(Movie::getDirector, 2),
+            new SearchIndex.Field<>(Movie::getProducer, 2),
+            new SearchIndex.Field<>(Movie::getReleaseDate, 1),
+            new SearchIndex.Field<>(Movie::getOpeningCrawl, 1));
+    private static final String SHARED_EVENTS = "starwars_shared_catalog_events_total";
+    private static final String SHARED_EVENTS_HELP =
+            "Refrescos resueltos con la caché compartida: adoptados de otro nodo, publicados por este o en espera de otro nodo";
+    private static final Counter SHARED_ADOPTED = Metrics.counter(SHARED_EVENTS, SHARED_EVENTS_HELP, "event", "adopted");
+    private static final Counter SHARED_PUBLISHED = Metrics.counter(SHARED_EVENTS, SHARED_EVENTS_HELP, "event", "published");
+    private static final Counter SHARED_LEASE_BUSY = Metrics.counter(SHARED_EVENTS, SHARED_EVENTS_HELP, "event", "lease_busy");
+    private static final Counter STALE_SERVED = Metrics.counter("starwars_catalog_stale_served_total",
+            "Consultas respondidas con el catálogo expirado mientras se refresca o SWAPI falla");
     private final HttpClient client;
-    private final Gson gson;
+    private final String filmsUrl;
+    private final long ttlNanos;
+    private final long refreshAheadNanos;
+    private final Executor refreshExecutor;
+    // Lecturas, sondeos y publicaciones de la caché compartida, fuera del hilo que decodifica el catálogo
+    private final ScheduledExecutorService sharedExecutor;
+    private final UpstreamPolicy upstream;
+    private final Path snapshotFile;
+    private final SwapiResourceClient resources;
+    private final SharedCatalogCache sharedCache;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Duration leaseDuration;
+    private final boolean eagerGraph;
+    private final AtomicReference<CompletableFuture<Catalog>> inFlightRefresh = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<ResourceGraph>> inFlightGraph = new AtomicReference<>();
+    private volatile Catalog catalog;
+    private volatile ResourceGraph graph;
+    // Publicación compartida más reciente que este nodo adoptó o publicó; solo la usa sharedExecutor
+    private Instant lastSharedAt = Instant.MIN;
 
     public MovieService() {
-        this.client = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(10))
-                .build();
-        this.gson = new GsonBuilder()
-                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
-                .create();
+        this(AppConfig.getString(SWAPI_URL_KEY, SWAPI_URL));
     }
 
-    public Movie getMovieById(String id) throws MovieServiceException {
-        validateId(id);
-        String responseBody = fetchDataFromApi();
-        return findMovieInResponse(responseBody, id);
+    private MovieService(String filmsUrl) {
+        this(filmsUrl, DEFAULT_CATALOG_TTL, snapshotFileFromConfig(filmsUrl), sharedCacheFromConfig());
     }
 
-    private String fetchDataFromApi() throws MovieServiceException {
-        try {
-            String url = SWAPI_URL + "?format=json";
-            logInfo("Requesting URL: %s", url);
+    /**
+     * Crea el servicio contra una URL de películas y un TTL de catálogo concretos, sin copia en disco
+     * @param filmsUrl URL del listado de películas (por ejemplo, un servidor de pruebas local)
+     * @param catalogTtl tiempo de vida del catálogo en memoria
+     */
+    public MovieService(String filmsUrl, Duration catalogTtl) {
+        this(filmsUrl, catalogTtl, null);
+    }
 
-            HttpRequest request = buildRequest(url);
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    /**
+     * Crea el servicio con una copia en disco del catálogo
+     * @param filmsUrl URL del listado de películas
+     * @param catalogTtl tiempo de vida del catálogo en memoria
+     * @param snapshotFile archivo donde se guarda el catálogo tras cada refresco, o null para no guardarlo
+     */
+    public MovieService(String filmsUrl, Duration catalogTtl, Path snapshotFile) {
+        this(filmsUrl, catalogTtl, snapshotFile, null);
+    }
 
-            validateResponse(response);
+    /**
+     * Crea el servicio como una réplica más de las que comparten el catálogo: solo la que
+     * obtiene la concesión de refresco pide el listado a SWAPI, y las demás adoptan lo que publica
+     * @param filmsUrl URL del listado de películas
+     * @param catalogTtl tiempo de vida del catálogo en memoria
+     * @param snapshotFile archivo donde se guarda el catálogo tras cada refresco, o null para no guardarlo
+     * @param sharedCache caché compartida entre réplicas, o null para refrescar siempre desde SWAPI
+     */
+    public MovieService(String filmsUrl, Duration catalogTtl, Path snapshotFile, SharedCatalogCache sharedCache) {
+        if (catalogTtl.isNegative() || catalogTtl.isZero()) {
+            throw new IllegalArgumentException("El TTL del catálogo debe ser positivo");
+        }
+        this.upstream = UpstreamPolicy.fromConfig("films");
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(upstream.timeout())
+                .build();
+        this.filmsUrl = filmsUrl;
+        this.snapshotFile = snapshotFile;
+        this.sharedCache = sharedCache;
+        // La petición a SWAPI está acotada por el timeout de la política; el margen cubre decodificar y publicar
+        this.leaseDuration = upstream.timeout().multipliedBy(2);
+        this.eagerGraph = Boolean.parseBoolean(AppConfig.getString(GRAPH_EAGER_KEY, "false"));
+        this.ttlNanos = catalogTtl.toNanos();
+        this.refreshAheadNanos = (long) (ttlNanos * REFRESH_AHEAD_FACTOR);
+        this.refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "movie-catalog-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sharedExecutor = sharedCache == null ? null : Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "movie-catalog-shared");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Las demás colecciones tienen su propio cortocircuito: un fallo en ellas no corta el catálogo
+        UpstreamPolicy resourcePolicy = UpstreamPolicy.fromConfig("resources");
+        this.resources = new SwapiResourceClient(client, apiRoot(filmsUrl), resourcePolicy, refreshExecutor,
+                resourcePolicy.maxConcurrent());
+    }
 
-            String responseBody = response.body();
-            logInfo("API Response: %s", responseBody);
+    /**
+     * Prepara el catálogo antes de recibir peticiones: carga la copia en disco, si existe, y
+     * lanza un refresco contra SWAPI en segundo plano. Con la copia cargada el servicio responde
+     * desde el primer momento, aunque SWAPI no esté disponible. El grafo de recursos se carga con la
+     * primera consulta de detalles, salvo que {@code starwars.graph.eager} pida cargarlo ya.
+     */
+    public void warmUp() {
+        if (catalog == null && snapshotFile != null) {
+            loadSnapshot();
+        }
+        refreshCatalog();
+        if (eagerGraph) {
+            refreshGraph();
+        }
+    }
 
-            return responseBody;
-        } catch (IOException e) {
-            logSevere("IO Error: %s", e.getMessage());
-            throw new MovieServiceException("Error de conexión", e);
+    public Movie getMovieById(String id) throws MovieServiceException {
+        try {
+            return getMovieByIdAsync(id).get();
+        } catch (ExecutionException e) {
+            throw toServiceException(e.getCause());
         } catch (InterruptedException e) {
-            logSevere("Request interrupted: %s", e.getMessage());
             Thread.currentThread().interrupt();
             throw new MovieServiceException("La solicitud fue interrumpida", e);
         }
     }
 
-    private HttpRequest buildRequest(String url) {
-        return HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Accept", "application/json")
-                .GET()
-                .build();
+    /**
+     * Obtiene una película sin bloquear el hilo que llama
+     * @param id episode_id de la película
+     * @return futuro con la película o completado con una {@link MovieServiceException}
+     * @see #lookupMovieAsync(String)
+     */
+    public CompletableFuture<Movie> getMovieByIdAsync(String id) {
+        return lookupMovieAsync(id).thenCompose(lookup -> lookup.movie() != null
+                ? CompletableFuture.completedFuture(lookup.movie())
+                : CompletableFuture.failedFuture(new MovieNotFoundException(String.format("Película con ID %s no encontrada", id))));
     }
 
-    private void validateResponse(HttpResponse<String> response) throws MovieServiceException {
-        if (response.statusCode() != 200) {
-            logSevere("Error response from API: %d", response.statusCode());
-            throw new MovieServiceException(String.format("Error del servidor: %d", response.statusCode()));
+    /**
+     * Busca una película sin bloquear el hilo que llama. Si el catálogo está vigente el futuro
+     * se devuelve ya completado. Si expiró, se responde con el último catálogo conocido,
+     * marcado como obsoleto, mientras se refresca en segundo plano; así la latencia no depende
+     * de SWAPI mientras haya un catálogo que servir. Solo sin catálogo alguno se espera al refresco.
+     * @param id episode_id de la película
+     * @return futuro con el resultado, con película nula si el episodio no está en el catálogo,
+     *     o completado con una {@link MovieServiceException}
+     */
+    public CompletableFuture<MovieLookup> lookupMovieAsync(String id) {
+        int episodeId;
+        try {
+            episodeId = validateId(id);
+        } catch (MovieServiceException e) {
+            return CompletableFuture.failedFuture(e);
         }
+
+        return readCatalog((current, stale) -> find(current, episodeId, stale));
     }
 
-    private Movie findMovieInResponse(String responseBody, String id) throws MovieServiceException {
+    /**
+     * Busca varias películas con una sola lectura del catálogo, con la misma política de
+     * catálogo obsoleto que {@link #lookupMovieAsync(String)}
+     * @param episodeIds episodios a buscar
+     * @return futuro con las películas encontradas en el orden pedido; las inexistentes se omiten
+     */
+    public CompletableFuture<MovieBatch> lookupMoviesAsync(int[] episodeIds) {
+        return readCatalog((current, stale) -> {
+            List<Movie> movies = new ArrayList<>(episodeIds.length);
+            for (int episodeId : episodeIds) {
+                Movie movie = current.index.get(episodeId);
+                if (movie != null) {
+                    movies.add(movie);
+                }
+            }
+            return CompletableFuture.completedFuture(new MovieBatch(movies, stale));
+        });
+    }
+
+    /**
+     * Busca una película con sus personajes, planetas y naves. Tras la carga del grafo de recursos
+     * se responde desde memoria, con la misma política de datos obsoletos que el catálogo.
+     * @param id episode_id de la película
+     * @return futuro con los detalles, nulos si el episodio no está en el catálogo
+     */
+    public CompletableFuture<FilmDetailsLookup> lookupDetailsAsync(String id) {
+        int episodeId;
         try {
-            JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
-            JsonArray results = jsonResponse.getAsJsonArray("results");
-            int searchId = Integer.parseInt(id);
-
-            for (JsonElement element : results) {
-                JsonObject movieJson = element.getAsJsonObject();
-                if (movieJson.has("episode_id")) {
-                    int episodeId = movieJson.get("episode_id").getAsInt();
-                    logInfo("Checking episode_id: %d", episodeId);
-
-                    if (episodeId == searchId) {
-                        Movie movie = gson.fromJson(movieJson, Movie.class);
-                        logInfo("Found movie: %s", movie);
-                        return movie;
+            episodeId = validateId(id);
+        } catch (MovieServiceException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return readCatalog((current, staleCatalog) -> {
+            Movie movie = current.index.get(episodeId);
+            if (movie == null) {
+                return CompletableFuture.completedFuture(new FilmDetailsLookup(null, staleCatalog));
+            }
+            return readGraph((loaded, staleGraph) -> new FilmDetailsLookup(loaded.details(movie), staleCatalog || staleGraph));
+        });
+    }
+
+    /**
+     * Busca películas por texto en el título, director, productores, fecha de estreno y texto
+     * inicial. Se responde desde el índice invertido del catálogo, con la misma política de
+     * catálogo obsoleto que {@link #lookupMovieAsync(String)}.
+     * @param query texto libre; deben aparecer todos sus términos, y el último vale también como prefijo
+     * @param limit número máximo de resultados
+     * @return futuro con las películas ordenadas por relevancia
+     */
+    public CompletableFuture<MovieBatch> searchMoviesAsync(String query, int limit) {
+        return readCatalog((current, stale) ->
+                CompletableFuture.completedFuture(new MovieBatch(current.search.search(query, limit), stale)));
+    }
+
+    /**
+     * Devuelve todas las películas del catálogo ordenadas por episodio
+     * @return futuro con el listado completo
+     */
+    public CompletableFuture<MovieBatch> listMoviesAsync() {
+        return readCatalog((current, stale) -> CompletableFuture.completedFuture(new MovieBatch(current.index.movies(), stale)));
+    }
+
+    /**
+     * Refresca el catálogo sin esperar a que expire, o se une al refresco en curso
+     * @return futuro que se completa cuando el catálogo refrescado está publicado
+     */
+    CompletableFuture<Void> refreshCatalogNow() {
+        return refreshCatalog().thenApply(loaded -> null);
+    }
+
+    /**
+     * Lee el catálogo vigente. Si está cerca de expirar lanza un refresco en segundo plano; si
+     * ya expiró se lee el último conocido, marcado como obsoleto, mientras se refresca; y si
+     * nunca se cargó se espera al refresco en curso.
+     */
+    private <T> CompletableFuture<T> readCatalog(BiFunction<Catalog, Boolean, CompletableFuture<T>> reader) {
+        Catalog current = catalog;
+        if (current == null) {
+            CATALOG_METRICS.miss();
+            return refreshCatalog().thenCompose(loaded -> reader.apply(loaded, false));
+        }
+        long age = System.nanoTime() - current.loadedAt;
+        if (age < ttlNanos) {
+            CATALOG_METRICS.hit();
+            if (age >= refreshAheadNanos) {
+                refreshCatalog();
+            }
+            return reader.apply(current, false);
+        }
+        STALE_SERVED.increment();
+        refreshCatalog();
+        return reader.apply(current, true);
+    }
+
+    private CompletableFuture<MovieLookup> find(Catalog current, int episodeId, boolean stale) {
+        Movie movie = current.index.get(episodeId);
+        if (movie == null) {
+            logFine("Movie not found with episode_id: {0}", episodeId);
+        }
+        return CompletableFuture.completedFuture(new MovieLookup(movie, stale));
+    }
+
+    /**
+     * Lee el grafo de recursos con la misma política que {@link #readCatalog}: vigente, obsoleto
+     * mientras se refresca, o esperando a la primera carga
+     */
+    private <T> CompletableFuture<T> readGraph(BiFunction<ResourceGraph, Boolean, T> reader) {
+        ResourceGraph current = graph;
+        if (current == null) {
+            GRAPH_METRICS.miss();
+            return refreshGraph().thenApply(loaded -> reader.apply(loaded, false));
+        }
+        long age = System.nanoTime() - current.loadedAt();
+        if (age < ttlNanos) {
+            GRAPH_METRICS.hit();
+            if (age >= refreshAheadNanos) {
+                refreshGraph();
+            }
+            return CompletableFuture.completedFuture(reader.apply(current, false));
+        }
+        refreshGraph();
+        return CompletableFuture.completedFuture(reader.apply(current, true));
+    }
+
+    /**
+     * Inicia una carga del grafo de recursos o se une a la que ya está en curso
+     */
+    private CompletableFuture<ResourceGraph> refreshGraph() {
+        while (true) {
+            CompletableFuture<ResourceGraph> running = inFlightGraph.get();
+            if (running != null) {
+                return running;
+            }
+            CompletableFuture<ResourceGraph> refresh = new CompletableFuture<>();
+            if (inFlightGraph.compareAndSet(null, refresh)) {
+                loadGraph().whenComplete((loaded, error) -> publishGraph(refresh, loaded, error));
+                return refresh;
+            }
+        }
+    }
+
+    /**
+     * Compara el grafo con el catálogo vigente, revalidándolo antes si expiró. Si el listado de
+     * películas no cambió desde que se construyó el grafo (un 304 o los mismos validadores), el
+     * grafo se renueva sin pedir nada a SWAPI; si no, o si no hay validadores, se descarga entero.
+     */
+    private CompletableFuture<ResourceGraph> loadGraph() {
+        Catalog current = catalog;
+        CompletableFuture<Catalog> films = current != null && System.nanoTime() - current.loadedAt < ttlNanos
+                ? CompletableFuture.completedFuture(current)
+                : refreshCatalog();
+        // Si el catálogo no se pudo revalidar se intenta igualmente descargar el grafo
+        return films.handle((loaded, error) -> loaded != null ? loaded.version() : null)
+                .thenCompose(filmsVersion -> {
+                    ResourceGraph previous = graph;
+                    if (previous != null && previous.builtFrom(filmsVersion)) {
+                        logFine("Films unchanged since the resource graph was loaded: {0}", filmsVersion);
+                        return CompletableFuture.completedFuture(previous.renewed(System.nanoTime()));
                     }
+                    return fetchGraph(filmsVersion);
+                });
+    }
+
+    /**
+     * Descarga las colecciones una tras otra; dentro de cada una las páginas van en paralelo hasta
+     * llenar el bulkhead, así que lanzarlas todas a la vez solo provocaría rechazos
+     */
+    private CompletableFuture<ResourceGraph> fetchGraph(String filmsVersion) {
+        return resources.fetchAll(ResourceGraph.FILMS, ResourceGraph::readFilmLinks)
+                .thenCompose(films -> resources.fetchAll(ResourceGraph.PEOPLE, ResourceGraph::readResource)
+                .thenCompose(people -> resources.fetchAll(ResourceGraph.PLANETS, ResourceGraph::readResource)
+                .thenCompose(planets -> resources.fetchAll(ResourceGraph.STARSHIPS, ResourceGraph::readResource)
+                .thenApply(starships -> ResourceGraph.of(films, people, planets, starships, System.nanoTime(), filmsVersion)))));
+    }
+
+    private void publishGraph(CompletableFuture<ResourceGraph> refresh, ResourceGraph loaded, Throwable error) {
+        try {
+            if (error != null) {
+                refresh.completeExceptionally(toServiceException(error));
+                return;
+            }
+            graph = loaded;
+            logInfo("Resource graph loaded with {0} related entities", loaded.size());
+            refresh.complete(loaded);
+        } finally {
+            inFlightGraph.compareAndSet(refresh, null);
+        }
+    }
+
+    /**
+     * Inicia un refresco del catálogo o se une al que ya está en curso, de modo que
+     * los fallos concurrentes comparten una única petición a la API.
+     */
+    private CompletableFuture<Catalog> refreshCatalog() {
+        while (true) {
+            CompletableFuture<Catalog> running = inFlightRefresh.get();
+            if (running != null) {
+                return running;
+            }
+            CompletableFuture<Catalog> refresh = new CompletableFuture<>();
+            if (inFlightRefresh.compareAndSet(null, refresh)) {
+                Catalog previous = catalog;
+                loadCatalog(previous).whenComplete((loaded, error) -> publishCatalog(refresh, previous, loaded, error));
+                return refresh;
+            }
+        }
+    }
+
+    /**
+     * Carga el catálogo desde SWAPI o, si hay caché compartida, a través de ella
+     */
+    private CompletableFuture<Catalog> loadCatalog(Catalog previous) {
+        if (sharedCache == null) {
+            return fetchCatalogFromApi(previous);
+        }
+        return CompletableFuture.supplyAsync(() -> loadShared(previous, false), sharedExecutor)
+                .thenCompose(loaded -> loaded);
+    }
+
+    /**
+     * Adopta el catálogo publicado por otro nodo si es más reciente que el propio y aún no toca
+     * refrescarlo. Si no, solo el nodo que obtiene la concesión pide el listado a SWAPI y lo
+     * publica; los demás vuelven a leer la caché hasta que aparece su publicación, y mientras
+     * tanto siguen sirviendo el catálogo que tengan. Se ejecuta en el hilo de la caché compartida,
+     * así que sondear o leer un almacén lento no retrasa la decodificación de otros refrescos.
+     */
+    private CompletableFuture<Catalog> loadShared(Catalog previous, boolean waiting) {
+        Catalog adopted = adoptShared(previous);
+        if (adopted != null) {
+            return CompletableFuture.completedFuture(adopted);
+        }
+        if (!tryAcquireLease()) {
+            if (!waiting) {
+                SHARED_LEASE_BUSY.increment();
+            }
+            return pollShared(previous);
+        }
+        // Otro nodo pudo publicar y liberar la concesión entre la lectura y la concesión
+        adopted = adoptShared(previous);
+        if (adopted != null) {
+            releaseLease();
+            return CompletableFuture.completedFuture(adopted);
+        }
+        return fetchCatalogFromApi(previous)
+                .thenApplyAsync(this::publishShared, sharedExecutor)
+                .whenCompleteAsync((loaded, error) -> releaseLease(), sharedExecutor);
+    }
+
+    /**
+     * Vuelve a intentar {@link #loadShared} tras el intervalo de sondeo, en el planificador propio de la caché compartida
+     */
+    private CompletableFuture<Catalog> pollShared(Catalog previous) {
+        CompletableFuture<CompletableFuture<Catalog>> next = new CompletableFuture<>();
+        sharedExecutor.schedule(() -> {
+            try {
+                next.complete(loadShared(previous, true));
+            } catch (RuntimeException e) {
+                next.completeExceptionally(e);
+            }
+        }, SHARED_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        return next.thenCompose(loaded -> loaded);
+    }
+
+    /**
+     * @return el catálogo publicado en la caché compartida, o null si no hay uno más reciente
+     *     que el propio o ya está cerca de expirar
+     */
+    private Catalog adoptShared(Catalog previous) {
+        SharedCatalog shared;
+        try {
+            shared = sharedCache.read();
+        } catch (IOException e) {
+            logWarning("Could not read the shared catalog: {0}", e.getMessage());
+            return null;
+        }
+        if (shared == null || !shared.publishedAt().isAfter(lastSharedAt)) {
+            return null;
+        }
+        long ageNanos = Math.max(0, Duration.between(shared.publishedAt(), Instant.now()).toNanos());
+        if (ageNanos >= refreshAheadNanos) {
+            return null;
+        }
+        long loadedAt = System.nanoTime() - ageNanos;
+        Catalog adopted;
+        if (previous != null && previous.hasValidators()
+                && Objects.equals(previous.etag, shared.etag()) && Objects.equals(previous.lastModified, shared.lastModified())) {
+            // Mismo listado que el propio: se reutilizan sus índices, como tras un 304
+            adopted = previous.revalidated(loadedAt);
+        } else {
+            long start = System.nanoTime();
+            try {
+                EpisodeIndex index = EpisodeIndex.of(CatalogSnapshot.decode(shared.payload()));
+                if (index.size() == 0) {
+                    return null;
                 }
+                adopted = new Catalog(index, loadedAt, shared.etag(), shared.lastModified());
+            } catch (IOException | IllegalStateException | NumberFormatException e) {
+                logWarning("Ignoring unreadable shared catalog: {0}", e.getMessage());
+                return null;
+            }
+            CATALOG_REBUILD.recordSince(start);
+        }
+        lastSharedAt = shared.publishedAt();
+        SHARED_ADOPTED.increment();
+        logFine("Adopted the shared movie catalog published at {0}", shared.publishedAt());
+        return adopted;
+    }
+
+    /**
+     * Publica en la caché compartida el catálogo recién obtenido de SWAPI, también tras un 304
+     * para que los demás nodos vean que sigue vigente
+     */
+    private Catalog publishShared(Catalog loaded) {
+        // Milisegundos: es la precisión con la que lo guarda la caché en archivo
+        Instant publishedAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        try {
+            sharedCache.publish(new SharedCatalog(publishedAt, loaded.etag, loaded.lastModified,
+                    CatalogSnapshot.encode(loaded.index.movies())));
+            lastSharedAt = publishedAt;
+            SHARED_PUBLISHED.increment();
+        } catch (IOException e) {
+            logWarning("Could not publish the shared catalog: {0}", e.getMessage());
+        }
+        return loaded;
+    }
+
+    /**
+     * @return true si este nodo debe refrescar; si la caché no responde refresca por su cuenta
+     */
+    private boolean tryAcquireLease() {
+        try {
+            return sharedCache.tryAcquireRefresh(nodeId, leaseDuration);
+        } catch (IOException e) {
+            logWarning("Could not acquire the shared refresh lease: {0}", e.getMessage());
+            return true;
+        }
+    }
+
+    private void releaseLease() {
+        try {
+            sharedCache.releaseRefresh(nodeId);
+        } catch (IOException e) {
+            logWarning("Could not release the shared refresh lease: {0}", e.getMessage());
+        }
+    }
+
+    private void publishCatalog(CompletableFuture<Catalog> refresh, Catalog previous, Catalog loaded, Throwable error) {
+        if (error == null) {
+            // Los índices se construyen completos antes de publicarse con una única escritura volátil
+            catalog = loaded;
+        }
+        // Se libera antes de completar: un refresco pedido a partir de aquí parte del catálogo publicado
+        inFlightRefresh.compareAndSet(refresh, null);
+        if (error != null) {
+            refresh.completeExceptionally(toServiceException(error));
+            return;
+        }
+        if (previous != null && loaded.index == previous.index) {
+            // 304: mismo catálogo con la edad reiniciada; la copia en disco ya tiene estas películas
+            logFine("Movie catalog not modified upstream ({0} films)", loaded.index.size());
+            refresh.complete(loaded);
+            return;
+        }
+        logInfo("Movie catalog refreshed with {0} films", loaded.index.size());
+        logFine("Search index built with {0} terms", loaded.search.termCount());
+        refresh.complete(loaded);
+        saveSnapshot(loaded.index);
+    }
+
+    /**
+     * Publica el catálogo de la copia en disco. Su edad se calcula a partir de la fecha del
+     * archivo, así que una copia más antigua que el TTL se sirve como obsoleta hasta el refresco.
+     */
+    private void loadSnapshot() {
+        try {
+            CatalogSnapshot snapshot = CatalogSnapshot.read(snapshotFile);
+            if (snapshot == null) {
+                return;
             }
+            EpisodeIndex index = EpisodeIndex.of(snapshot.movies());
+            if (index.size() == 0) {
+                return;
+            }
+            long ageNanos = Duration.between(snapshot.savedAt(), Instant.now()).toNanos();
+            ageNanos = Math.max(0, Math.min(ageNanos, ttlNanos));
+            catalog = new Catalog(index, System.nanoTime() - ageNanos, null, null);
+            logInfo("Loaded {0} films from the catalog snapshot", index.size());
+        } catch (IOException | IllegalStateException | NumberFormatException | ArithmeticException e) {
+            logWarning("Ignoring unreadable catalog snapshot: {0}", e.getMessage());
+        }
+    }
+
+    /**
+     * Guarda el catálogo recién publicado. Se llama desde el hilo que completó el refresco,
+     * que es el de refresco salvo con errores, así que las escrituras no se solapan.
+     */
+    private void saveSnapshot(EpisodeIndex index) {
+        if (snapshotFile == null) {
+            return;
+        }
+        try {
+            CatalogSnapshot.write(snapshotFile, index.movies());
+        } catch (IOException e) {
+            logWarning("Could not write the catalog snapshot: {0}", e.getMessage());
+        }
+    }
+
+    /**
+     * URL raíz de la API a partir de la del listado de películas ({@code .../api/films/} → {@code .../api/})
+     */
+    private static String apiRoot(String filmsUrl) {
+        String url = filmsUrl.endsWith("/") ? filmsUrl : filmsUrl + "/";
+        return url.substring(0, url.lastIndexOf('/', url.length() - 2) + 1);
+    }
+
+    /**
+     * Archivo de la copia en disco. Por defecto su nombre lleva un hash de la URL de películas, para
+     * que un proceso contra otro SWAPI (un servidor de pruebas, por ejemplo) no lea ni pise esta copia
+     */
+    private static Path snapshotFileFromConfig(String filmsUrl) {
+        String defaultName = String.format("starwars-films-catalog-%08x.json", filmsUrl.hashCode());
+        String file = AppConfig.getString(SNAPSHOT_KEY,
+                Path.of(System.getProperty("java.io.tmpdir"), defaultName).toString());
+        // AppConfig trata un valor vacío como no definido, así que la copia se desactiva con "none"
+        return SNAPSHOT_DISABLED.equalsIgnoreCase(file) ? null : Path.of(file);
+    }
+
+    private static SharedCatalogCache sharedCacheFromConfig() {
+        String directory = AppConfig.getString(SHARED_DIR_KEY, null);
+        if (directory == null) {
+            return null;
+        }
+        try {
+            return new FileCatalogCache(Path.of(directory));
+        } catch (IOException e) {
+            throw new IllegalArgumentException(String.format("No se puede usar el directorio de %s: %s", SHARED_DIR_KEY, directory), e);
+        }
+    }
+
+    /**
+     * Pide el listado a la API con {@code sendAsync}; ningún hilo queda esperando la respuesta
+     * y el cuerpo se decodifica en streaming en el hilo de refresco. Si el catálogo anterior
+     * trae {@code ETag} o {@code Last-Modified} la petición es condicional, y un 304 reutiliza
+     * sus índices sin transferir ni decodificar el listado. Si la petición excede el tiempo
+     * máximo se cierra el cuerpo, así que un SWAPI que lo envía muy despacio no retiene el hilo de refresco.
+     */
+    private CompletableFuture<Catalog> fetchCatalogFromApi(Catalog previous) {
+        String url = filmsUrl + "?format=json";
+        logFine("Requesting URL: {0}", url);
+
+        return upstream.call(aborted -> {
+            long start = System.nanoTime();
+            return SwapiExchange.send(client, buildCatalogRequest(url, previous), refreshExecutor, response -> {
+                        try {
+                            return toCatalog(response, previous);
+                        } catch (MovieServiceException e) {
+                            throw new CompletionException(e);
+                        }
+                    }, aborted)
+                    .whenComplete((loaded, error) -> {
+                        UPSTREAM_LATENCY.recordSince(start);
+                        if (error != null) {
+                            UPSTREAM_ERRORS.increment();
+                        }
+                    });
+        });
+    }
+
+    private Catalog toCatalog(HttpResponse<InputStream> response, Catalog previous) throws MovieServiceException {
+        boolean conditional = previous != null && previous.hasValidators();
+        if (conditional && response.statusCode() == 304) {
+            NOT_MODIFIED.increment();
+            closeBody(response);
+            return previous.revalidated(System.nanoTime());
+        }
+        long start = System.nanoTime();
+        EpisodeIndex index = decodeCatalog(response);
+        Catalog loaded = new Catalog(index, System.nanoTime(),
+                response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null));
+        CATALOG_REBUILD.recordSince(start);
+        if (conditional) {
+            MODIFIED.increment();
+        }
+        return loaded;
+    }
+
+    private EpisodeIndex decodeCatalog(HttpResponse<InputStream> response) throws MovieServiceException {
+        CountingInputStream counted = new CountingInputStream(response.body());
+        try (Reader body = new InputStreamReader(counted, StandardCharsets.UTF_8)) {
+            validateResponse(response);
+            return EpisodeIndex.of(FilmsDecoder.decode(body));
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException e) {
+            logSevere("JSON Parse error: {0}", e.getMessage());
+            throw new MovieServiceException("Error al procesar la respuesta del catálogo de películas", e);
+        } catch (IOException e) {
+            logSevere("IO Error: {0}", e.getMessage());
+            throw new MovieServiceException("Error de conexión", e);
+        } finally {
+            UPSTREAM_BYTES.add(counted.count);
+        }
+    }
+
+    private static void closeBody(HttpResponse<InputStream> response) {
+        try {
+            response.body().close();
+        } catch (IOException e) {
+            // Un 304 no tiene cuerpo; cerrarlo solo libera la conexión
+        }
+    }
 
-            logWarning("Movie not found with episode_id: %s", id);
-            throw new MovieNotFoundException(String.format("Película con ID %s no encontrada", id));
+    private MovieServiceException toServiceException(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof MovieServiceException) {
+            return (MovieServiceException) cause;
+        }
+        if (cause instanceof CallNotPermittedException) {
+            // El circuito abierto rechaza cada intento; no merece una traza por petición
+            logFine("SWAPI call rejected: {0}", cause.getMessage());
+            return new MovieServiceException("SWAPI no está disponible temporalmente", cause);
+        }
+        if (cause instanceof TimeoutException) {
+            logSevere("SWAPI request timed out after {0} ms", upstream.timeout().toMillis());
+            return new MovieServiceException("SWAPI no respondió a tiempo", cause);
+        }
+        if (cause instanceof IOException) {
+            logSevere("IO Error: {0}", cause.getMessage());
+            return new MovieServiceException("Error de conexión", cause);
+        }
+        logSevere("Unexpected error: {0}", cause.getMessage());
+        return new MovieServiceException("Error inesperado al cargar el catálogo de películas", cause);
+    }
 
-        } catch (JsonParseException e) {
-            logSevere("JSON Parse error: %s", e.getMessage());
-            throw new MovieServiceException(String.format("Error al procesar la respuesta para película con ID %s", id), e);
-        } catch (Exception e) {
-            logSevere("Unexpected error: %s", e.getMessage());
-            throw new MovieServiceException(String.format("Error inesperado al buscar película con ID %s", id), e);
+    private HttpRequest buildCatalogRequest(String url, Catalog previous) {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(upstream.timeout())
+                .header("Accept", "application/json")
+                .GET();
+        if (previous != null) {
+            // Los validadores se devuelven tal cual los envió SWAPI, como pide RFC 9110
+            if (previous.etag != null) {
+                request.header("If-None-Match", previous.etag);
+            }
+            if (previous.lastModified != null) {
+                request.header("If-Modified-Since", previous.lastModified);
+            }
         }
+        return request.build();
     }
 
-    private void validateId(String id) throws MovieServiceException {
+    private void validateResponse(HttpResponse<?> response) throws MovieServiceException {
+        if (response.statusCode() != 200) {
+            logSevere("Error response from API: {0}", response.statusCode());
+            throw new MovieServiceException(String.format("Error del servidor: %d", response.statusCode()));
+        }
+    }
+
+    private int validateId(String id) throws MovieServiceException {
         try {
             int episodeId = Integer.parseInt(id);
-            if (episodeId < 1 || episodeId > 7) {
-                throw new MovieServiceException("El ID debe estar entre 1 y 7");
+            // El catálogo decide qué episodios existen; aquí solo se descartan los imposibles
+            if (episodeId < 1) {
+                throw new MovieServiceException("El ID debe ser un número positivo");
             }
+            return episodeId;
         } catch (NumberFormatException e) {
             throw new MovieServiceException("ID inválido");
         }
     }
 
-    private void logInfo(String format, Object... args) {
-        if (logger.isLoggable(Level.INFO)) {
-            logger.info(String.format(format, args));
+    /**
+     * Catálogo de películas indexado por episode_id y por texto, junto con el instante de carga
+     * y los validadores HTTP de la respuesta de la que salió. El índice de búsqueda se construye
+     * una vez por catálogo, antes de publicarlo.
+     */
+    private static final class Catalog {
+        private final EpisodeIndex index;
+        private final SearchIndex<Movie> search;
+        private final long loadedAt;
+        private final String etag;
+        private final String lastModified;
+
+        private Catalog(EpisodeIndex index, long loadedAt, String etag, String lastModified) {
+            this(index, SearchIndex.of(index.movies(), SEARCH_FIELDS), loadedAt, etag, lastModified);
         }
-    }
 
-    private void logWarning(String format, Object... args) {
-        if (logger.isLoggable(Level.WARNING)) {
-            logger.warning(String.format(format, args));
+        private Catalog(EpisodeIndex index, SearchIndex<Movie> search, long loadedAt, String etag, String lastModified) {
+            this.index = index;
+            this.search = search;
+            this.loadedAt = loadedAt;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        private boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+
+        /**
+         * @return los validadores del listado como una sola cadena, o null si SWAPI no envió ninguno
+         */
+        private String version() {
+            return hasValidators() ? etag + " " + lastModified : null;
+        }
+
+        /**
+         * @return el mismo catálogo, con los mismos índices, cargado en el instante dado; las
+         *     cachés de respuestas siguen siendo válidas porque las películas son las mismas instancias
+         */
+        private Catalog revalidated(long now) {
+            return new Catalog(index, search, now, etag, lastModified);
         }
     }
 
-    private void logSevere(String format, Object... args) {
-        if (logger.isLoggable(Level.SEVERE)) {
-            logger.severe(String.format(format, args));
+    /**
+     * Cuenta los bytes leídos del cuerpo de una respuesta
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
         }
     }
-}
 
-class MovieServiceException extends Exception {
-    public MovieServiceException(String message) {
-        super(message);
+    // Los mensajes usan parámetros {0} de MessageFormat: el handler los formatea solo si el registro se escribe
+
+    private void logFine(String pattern, Object arg) {
+        if (logger.isLoggable(Level.FINE)) {
+            logger.log(Level.FINE, pattern, arg);
+        }
     }
 
-    public MovieServiceException(String message, Throwable cause) {
-        super(message, cause);
+    private void logInfo(String pattern, Object arg) {
+        if (logger.isLoggable(Level.INFO)) {
+            logger.log(Level.INFO, pattern, arg);
+        }
     }
-}
 
-class MovieNotFoundException extends MovieServiceException {
-    public MovieNotFoundException(String message) {
-        super(message);
+    private void logWarning(String pattern, Object arg) {
+        if (logger.isLoggable(Level.WARNING)) {
+            logger.log(Level.WARNING, pattern, arg);
+        }
     }
 
-    public MovieNotFoundException(String message, Throwable cause) {
-        super(message, cause);
+    private void logSevere(String pattern, Object arg) {
+        if (logger.isLoggable(Level.SEVERE)) {
+            logger.log(Level.SEVERE, pattern, arg);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,16 @@
+package co.edu.escuelaing.arem.ase.service;
+
+/**
+ * Error al obtener películas: SWAPI no disponible, respuesta inválida o parámetros incorrectos
+ */
+class MovieServiceException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public MovieServiceException(String message) {
+        super(message);
+    }
+
+    public MovieServiceException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
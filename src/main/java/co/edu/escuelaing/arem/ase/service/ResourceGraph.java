@@ -0,0 +1,208 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import co.edu.escuelaing.arem.ase.model.Movie;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Grafo en memoria de las películas y sus entidades relacionadas. Cada película guarda los ids
+ * de sus personajes, planetas y naves, y cada colección se indexa por id, así que resolver los
+ * detalles de una película no pide nada a SWAPI. Se construye completo y no cambia: un refresco
+ * publica un grafo nuevo. Guarda los validadores del listado de películas con el que se
+ * construyó, para no volver a descargarlo mientras el listado no cambie.
+ */
+final class ResourceGraph {
+    static final String FILMS = "films";
+    static final String PEOPLE = "people";
+    static final String PLANETS = "planets";
+    static final String STARSHIPS = "starships";
+
+    private final Map<Integer, FilmLinks> linksByEpisode;
+    private final Map<Integer, SwapiResource> people;
+    private final Map<Integer, SwapiResource> planets;
+    private final Map<Integer, SwapiResource> starships;
+    private final long loadedAt;
+    private final String filmsVersion;
+    // Detalles ya resueltos por episodio; se reconstruyen si el catálogo publica otra película
+    private final Map<Integer, FilmDetails> resolved;
+
+    private ResourceGraph(Map<Integer, FilmLinks> linksByEpisode, Map<Integer, SwapiResource> people,
+                          Map<Integer, SwapiResource> planets, Map<Integer, SwapiResource> starships,
+                          long loadedAt, String filmsVersion, Map<Integer, FilmDetails> resolved) {
+        this.linksByEpisode = linksByEpisode;
+        this.people = people;
+        this.planets = planets;
+        this.starships = starships;
+        this.loadedAt = loadedAt;
+        this.filmsVersion = filmsVersion;
+        this.resolved = resolved;
+    }
+
+    /**
+     * @param filmsVersion validadores del listado de películas del que se partió, o null si no se conocen
+     */
+    static ResourceGraph of(Collection<FilmLinks> films, Collection<SwapiResource> people,
+                            Collection<SwapiResource> planets, Collection<SwapiResource> starships,
+                            long loadedAt, String filmsVersion) {
+        Map<Integer, FilmLinks> linksByEpisode = new HashMap<>();
+        for (FilmLinks film : films) {
+            linksByEpisode.put(film.episodeId, film);
+        }
+        return new ResourceGraph(linksByEpisode, byId(people), byId(planets), byId(starships),
+                loadedAt, filmsVersion, new ConcurrentHashMap<>());
+    }
+
+    private static Map<Integer, SwapiResource> byId(Collection<SwapiResource> resources) {
+        Map<Integer, SwapiResource> index = new HashMap<>(resources.size() * 2);
+        for (SwapiResource resource : resources) {
+            index.put(resource.id(), resource);
+        }
+        return index;
+    }
+
+    /**
+     * @return personajes, planetas y naves del grafo
+     */
+    int size() {
+        return people.size() + planets.size() + starships.size();
+    }
+
+    long loadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * @return true si el grafo se construyó con esta versión del listado de películas
+     */
+    boolean builtFrom(String filmsVersion) {
+        return filmsVersion != null && filmsVersion.equals(this.filmsVersion);
+    }
+
+    /**
+     * @return el mismo grafo, con los detalles ya resueltos, cargado en el instante dado
+     */
+    ResourceGraph renewed(long now) {
+        return new ResourceGraph(linksByEpisode, people, planets, starships, now, filmsVersion, resolved);
+    }
+
+    /**
+     * Resuelve las relaciones de una película. Los ids que no están en el grafo se omiten.
+     * @param movie película del catálogo
+     * @return los detalles, la misma instancia mientras no cambie la película
+     */
+    FilmDetails details(Movie movie) {
+        FilmDetails cached = resolved.get(movie.getEpisodeId());
+        if (cached != null && cached.movie() == movie) {
+            return cached;
+        }
+        FilmLinks links = linksByEpisode.get(movie.getEpisodeId());
+        FilmDetails details = links == null
+                ? new FilmDetails(movie, List.of(), List.of(), List.of())
+                : new FilmDetails(movie, resolve(links.characters, people), resolve(links.planets, planets),
+                        resolve(links.starships, starships));
+        resolved.put(movie.getEpisodeId(), details);
+        return details;
+    }
+
+    private static List<SwapiResource> resolve(int[] ids, Map<Integer, SwapiResource> index) {
+        List<SwapiResource> resources = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            SwapiResource resource = index.get(id);
+            if (resource != null) {
+                resources.add(resource);
+            }
+        }
+        return Collections.unmodifiableList(resources);
+    }
+
+    /**
+     * Lee las relaciones de una película del listado de SWAPI
+     * @return las relaciones, o null si la película no trae {@code episode_id}
+     */
+    static FilmLinks readFilmLinks(JsonReader json) throws IOException {
+        int episodeId = -1;
+        int[] characters = new int[0];
+        int[] planets = new int[0];
+        int[] starships = new int[0];
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "episode_id" -> episodeId = json.nextInt();
+                case "characters" -> characters = readIds(json);
+                case "planets" -> planets = readIds(json);
+                case "starships" -> starships = readIds(json);
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        return episodeId < 0 ? null : new FilmLinks(episodeId, characters, planets, starships);
+    }
+
+    /**
+     * Lee el id (de su URL) y el nombre de una entidad de SWAPI
+     * @return la entidad, o null si no trae una URL válida
+     */
+    static SwapiResource readResource(JsonReader json) throws IOException {
+        int id = -1;
+        String name = null;
+        json.beginObject();
+        while (json.hasNext()) {
+            String field = json.nextName();
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "url" -> id = SwapiResourceClient.idFromUrl(json.nextString());
+                case "name" -> name = json.nextString();
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        return id < 0 ? null : new SwapiResource(id, name);
+    }
+
+    private static int[] readIds(JsonReader json) throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        json.beginArray();
+        while (json.hasNext()) {
+            int id = SwapiResourceClient.idFromUrl(json.nextString());
+            if (id >= 0) {
+                ids.add(id);
+            }
+        }
+        json.endArray();
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Ids de las entidades relacionadas con una película
+     */
+    static final class FilmLinks {
+        private final int episodeId;
+        private final int[] characters;
+        private final int[] planets;
+        private final int[] starships;
+
+        private FilmLinks(int episodeId, int[] characters, int[] planets, int[] starships) {
+            this.episodeId = episodeId;
+            this.characters = characters;
+            this.planets = planets;
+            this.starships = starships;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Índice invertido inmutable para búsquedas de texto completo. Cada término guarda su lista de
+ * documentos como arreglos primitivos ordenados, junto con la puntuación BM25 ya calculada, así
+ * que una consulta solo intersecta listas y suma puntuaciones, sin recorrer los documentos.
+ * Es genérico para poder indexar también personajes o planetas con sus propios campos.
+ * @param <T> tipo de documento indexado
+ */
+final class SearchIndex<T> {
+    // Parámetros habituales de BM25: saturación de la frecuencia y normalización por longitud
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Los términos de una letra ("a", "s" de "Jabba's") no distinguen nada
+    private static final int MIN_TERM_LENGTH = 2;
+    // El último término de la consulta se busca también como prefijo, para buscar mientras se escribe
+    private static final int MIN_PREFIX_LENGTH = 3;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    // Un documento que solo coincide por prefijo puntúa menos que uno con la palabra exacta
+    private static final float PREFIX_PENALTY = 0.5f;
+    static final int MAX_QUERY_TERMS = 8;
+
+    private final List<T> documents;
+    // Términos ordenados; postingDocs[i] y postingScores[i] son la lista del término terms[i]
+    private final String[] terms;
+    private final int[][] postingDocs;
+    private final float[][] postingScores;
+
+    private SearchIndex(List<T> documents, String[] terms, int[][] postingDocs, float[][] postingScores) {
+        this.documents = documents;
+        this.terms = terms;
+        this.postingDocs = postingDocs;
+        this.postingScores = postingScores;
+    }
+
+    /**
+     * Campo indexado de un documento y su peso en la puntuación
+     * @param value extrae el texto del campo; puede devolver null
+     * @param weight veces que cuenta cada aparición de un término en este campo
+     */
+    record Field<T>(Function<T, String> value, int weight) {
+    }
+
+    /**
+     * Construye el índice
+     * @param documents documentos en el orden que desempata resultados con la misma puntuación
+     * @param fields campos a indexar
+     * @return índice nuevo
+     */
+    static <T> SearchIndex<T> of(List<T> documents, List<Field<T>> fields) {
+        // Frecuencia ponderada de cada término por documento, en orden de documento
+        Map<String, Postings> byTerm = new HashMap<>();
+        int[] lengths = new int[documents.size()];
+        long totalLength = 0;
+        List<String> tokens = new ArrayList<>();
+        for (int doc = 0; doc < documents.size(); doc++) {
+            for (Field<T> field : fields) {
+                tokens.clear();
+                tokenize(field.value().apply(documents.get(doc)), tokens);
+                for (String token : tokens) {
+                    byTerm.computeIfAbsent(token, ignored -> new Postings()).add(doc, field.weight());
+                }
+                lengths[doc] += tokens.size() * field.weight();
+            }
+            totalLength += lengths[doc];
+        }
+
+        String[] terms = byTerm.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        int[][] postingDocs = new int[terms.length][];
+        float[][] postingScores = new float[terms.length][];
+        double averageLength = documents.isEmpty() ? 1 : Math.max(1, (double) totalLength / documents.size());
+        for (int i = 0; i < terms.length; i++) {
+            Postings postings = byTerm.get(terms[i]);
+            int[] docs = Arrays.copyOf(postings.docs, postings.size);
+            float[] scores = new float[postings.size];
+            double idf = Math.log(1 + (documents.size() - postings.size + 0.5) / (postings.size + 0.5));
+            for (int j = 0; j < postings.size; j++) {
+                double tf = postings.frequencies[j];
+                double norm = K1 * (1 - B + B * lengths[docs[j]] / averageLength);
+                scores[j] = (float) (idf * tf * (K1 + 1) / (tf + norm));
+            }
+            postingDocs[i] = docs;
+            postingScores[i] = scores;
+        }
+        return new SearchIndex<>(List.copyOf(documents), terms, postingDocs, postingScores);
+    }
+
+    /**
+     * Busca los documentos que contienen todos los términos de la consulta, ordenados por
+     * puntuación descendente. Mayúsculas y tildes no importan, y el último término también
+     * coincide con las palabras que empiezan por él.
+     * @param query texto libre
+     * @param limit número máximo de resultados
+     * @return documentos encontrados, vacío si ninguno contiene todos los términos
+     */
+    List<T> search(String query, int limit) {
+        List<String> queryTerms = new ArrayList<>();
+        tokenize(query, queryTerms);
+        if (queryTerms.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        int termCount = Math.min(queryTerms.size(), MAX_QUERY_TERMS);
+
+        int[][] docs = new int[termCount][];
+        float[][] scores = new float[termCount][];
+        for (int t = 0; t < termCount; t++) {
+            boolean last = t == termCount - 1;
+            if (!postingsFor(queryTerms.get(t), last, docs, scores, t)) {
+                return List.of();
+            }
+        }
+
+        // Se parte de la lista más corta: el resultado nunca es mayor que ella
+        int shortest = 0;
+        for (int t = 1; t < termCount; t++) {
+            if (docs[t].length < docs[shortest].length) {
+                shortest = t;
+            }
+        }
+        int[] matches = docs[shortest].clone();
+        float[] totals = scores[shortest].clone();
+        int count = matches.length;
+        for (int t = 0; t < termCount && count > 0; t++) {
+            if (t != shortest) {
+                count = intersect(matches, totals, count, docs[t], scores[t]);
+            }
+        }
+        return top(matches, totals, count, limit);
+    }
+
+    /**
+     * @return número de términos distintos del índice
+     */
+    int termCount() {
+        return terms.length;
+    }
+
+    /**
+     * Resuelve la lista de un término de la consulta. Para el último término se unen además las
+     * listas de los términos que empiezan por él, con la puntuación rebajada.
+     * @return false si el término no aparece en ningún documento
+     */
+    private boolean postingsFor(String term, boolean prefix, int[][] docs, float[][] scores, int slot) {
+        int position = Arrays.binarySearch(terms, term);
+        int from = position >= 0 ? position + 1 : -position - 1;
+        int to = from;
+        if (prefix && term.length() >= MIN_PREFIX_LENGTH) {
+            while (to < terms.length && to - from < MAX_PREFIX_EXPANSIONS && terms[to].startsWith(term)) {
+                to++;
+            }
+        }
+        if (position < 0 && from == to) {
+            return false;
+        }
+
+        int[] mergedDocs = position >= 0 ? postingDocs[position] : new int[0];
+        float[] mergedScores = position >= 0 ? postingScores[position] : new float[0];
+        for (int i = from; i < to; i++) {
+            int[] unionDocs = new int[mergedDocs.length + postingDocs[i].length];
+            float[] unionScores = new float[unionDocs.length];
+            int size = union(mergedDocs, mergedScores, postingDocs[i], postingScores[i], unionDocs, unionScores);
+            mergedDocs = Arrays.copyOf(unionDocs, size);
+            mergedScores = Arrays.copyOf(unionScores, size);
+        }
+        docs[slot] = mergedDocs;
+        scores[slot] = mergedScores;
+        return true;
+    }
+
+    /**
+     * Une dos listas ordenadas. Si un documento está en ambas se queda con la mejor puntuación
+     * de la expansión, para que varias palabras con el mismo prefijo no se sumen.
+     */
+    private static int union(int[] docs, float[] scores, int[] expansionDocs, float[] expansionScores,
+            int[] outDocs, float[] outScores) {
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < docs.length || j < expansionDocs.length) {
+            if (j == expansionDocs.length || (i < docs.length && docs[i] < expansionDocs[j])) {
+                outDocs[size] = docs[i];
+                outScores[size++] = scores[i++];
+            } else if (i == docs.length || expansionDocs[j] < docs[i]) {
+                outDocs[size] = expansionDocs[j];
+                outScores[size++] = expansionScores[j++] * PREFIX_PENALTY;
+            } else {
+                outDocs[size] = docs[i];
+                outScores[size++] = Math.max(scores[i++], expansionScores[j++] * PREFIX_PENALTY);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Deja en las primeras posiciones de {@code matches} los documentos que también están en la
+     * lista dada, sumando su puntuación
+     * @return número de documentos que quedan
+     */
+    private static int intersect(int[] matches, float[] totals, int count, int[] docs, float[] scores) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < docs.length; i++) {
+            int found = Arrays.binarySearch(docs, j, docs.length, matches[i]);
+            if (found >= 0) {
+                matches[kept] = matches[i];
+                totals[kept++] = totals[i] + scores[found];
+                j = found + 1;
+            } else {
+                j = -found - 1;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Selecciona los {@code limit} documentos de mayor puntuación; a igual puntuación, el que
+     * se indexó antes
+     */
+    private List<T> top(int[] matches, float[] totals, int count, int limit) {
+        int size = Math.min(limit, count);
+        int[] best = new int[size];
+        float[] bestScores = new float[size];
+        int filled = 0;
+        for (int i = 0; i < count; i++) {
+            float score = totals[i];
+            if (filled == size && score <= bestScores[size - 1]) {
+                continue;
+            }
+            int position = filled < size ? filled++ : size - 1;
+            while (position > 0 && bestScores[position - 1] < score) {
+                best[position] = best[position - 1];
+                bestScores[position] = bestScores[position - 1];
+                position--;
+            }
+            best[position] = matches[i];
+            bestScores[position] = score;
+        }
+
+        List<T> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            results.add(documents.get(best[i]));
+        }
+        return results;
+    }
+
+    /**
+     * Separa un texto en términos: secuencias de letras y dígitos, en minúsculas y sin tildes
+     */
+    static void tokenize(String text, List<String> out) {
+        if (text == null) {
+            return;
+        }
+        String folded = fold(text);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                if (i - start >= MIN_TERM_LENGTH) {
+                    out.add(folded.substring(start, i));
+                }
+                start = -1;
+            }
+        }
+    }
+
+    private static String fold(String text) {
+        boolean ascii = true;
+        for (int i = 0; i < text.length() && ascii; i++) {
+            ascii = text.charAt(i) < 0x80;
+        }
+        if (ascii) {
+            return text.toLowerCase(Locale.ROOT);
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                folded.append(c);
+            }
+        }
+        return folded.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Lista de un término mientras se construye el índice; los documentos llegan en orden
+     */
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+
+        private void add(int doc, int weight) {
+            if (size > 0 && docs[size - 1] == doc) {
+                frequencies[size - 1] += weight;
+                return;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size++] = weight;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import java.time.Instant;
+
+/**
+ * Catálogo publicado en una {@link SharedCatalogCache}: el listado codificado, el instante de
+ * publicación y los validadores HTTP de la respuesta de SWAPI de la que salió
+ */
+public final class SharedCatalog {
+    private final Instant publishedAt;
+    private final String etag;
+    private final String lastModified;
+    private final byte[] payload;
+
+    /**
+     * @param publishedAt instante en que el nodo que refrescó obtuvo el listado
+     * @param etag ETag de la respuesta de SWAPI, o null
+     * @param lastModified Last-Modified de la respuesta de SWAPI, o null
+     * @param payload películas codificadas; no se copia, así que no debe modificarse después
+     */
+    public SharedCatalog(Instant publishedAt, String etag, String lastModified, byte[] payload) {
+        this.publishedAt = publishedAt;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.payload = payload;
+    }
+
+    public Instant publishedAt() {
+        return publishedAt;
+    }
+
+    public String etag() {
+        return etag;
+    }
+
+    public String lastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return películas codificadas; es la misma instancia en cada llamada y no debe modificarse
+     */
+    public byte[] payload() {
+        return payload;
+    }
+}
@@ -0,0 +1,45 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Caché del catálogo compartida entre las réplicas del servicio. Solo el nodo que obtiene la
+ * concesión de refresco pide el listado a SWAPI y lo publica; los demás leen lo publicado.
+ * <p>
+ * La concesión caduca sola, así que un nodo que muere o se cuelga mientras refresca no bloquea
+ * a los demás más allá de su duración. Las implementaciones deben poder usarse desde varios
+ * hilos; un error de E/S hace que el servicio refresque por su cuenta, como sin caché compartida.
+ */
+public interface SharedCatalogCache {
+
+    /**
+     * Lee el último catálogo publicado
+     * @return el catálogo, o null si nadie ha publicado todavía
+     * @throws IOException si el almacén no se puede leer
+     */
+    SharedCatalog read() throws IOException;
+
+    /**
+     * Intenta obtener la concesión de refresco
+     * @param owner identificador del nodo
+     * @param lease tiempo tras el cual la concesión caduca si no se libera
+     * @return true si el nodo obtuvo la concesión o ya la tenía
+     * @throws IOException si el almacén no se puede leer o escribir
+     */
+    boolean tryAcquireRefresh(String owner, Duration lease) throws IOException;
+
+    /**
+     * Publica un catálogo reemplazando el anterior; los lectores ven el anterior o el nuevo completo
+     * @param catalog catálogo a publicar
+     * @throws IOException si el almacén no se puede escribir
+     */
+    void publish(SharedCatalog catalog) throws IOException;
+
+    /**
+     * Libera la concesión de refresco si la tiene el nodo dado
+     * @param owner identificador del nodo
+     * @throws IOException si el almacén no se puede escribir
+     */
+    void releaseRefresh(String owner) throws IOException;
+}
@@ -0,0 +1,49 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Petición a SWAPI con el cuerpo decodificado en streaming, que se puede abortar a mitad.
+ * {@code HttpRequest.timeout} solo acota la espera de las cabeceras: un servidor que las envía y
+ * luego entrega el cuerpo gota a gota dejaría bloqueado el hilo que lo lee. Al abortar se cancela
+ * el envío y se cierra el cuerpo, lo que hace fallar con {@link IOException} la lectura en curso.
+ */
+final class SwapiExchange {
+    private SwapiExchange() {
+    }
+
+    /**
+     * Envía la petición y decodifica la respuesta en el executor dado
+     * @param client cliente HTTP
+     * @param request petición
+     * @param decodeExecutor executor en el que se lee y decodifica el cuerpo
+     * @param decoder decodificador; debe cerrar el cuerpo al terminar
+     * @param aborted futuro que, al completarse, aborta la petición
+     * @return futuro que se completa cuando la decodificación termina o falla tras abortar
+     */
+    static <T> CompletableFuture<T> send(HttpClient client, HttpRequest request, Executor decodeExecutor,
+                                         Function<HttpResponse<InputStream>, T> decoder, CompletableFuture<Void> aborted) {
+        CompletableFuture<HttpResponse<InputStream>> sending = client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+        aborted.thenRun(() -> {
+            // Sin cabeceras aún, cancelar corta el intercambio; con ellas, hay que cerrar el cuerpo
+            sending.cancel(true);
+            sending.thenAccept(response -> closeQuietly(response.body()));
+        });
+        return sending.thenApplyAsync(decoder, decodeExecutor);
+    }
+
+    private static void closeQuietly(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            // Cerrar solo libera la conexión; el lector verá el cuerpo cerrado
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package co.edu.escuelaing.arem.ase.service;
+
+/**
+ * Entidad de SWAPI relacionada con una película (personaje, planeta o nave), con su id en la
+ * URL de SWAPI y su nombre
+ */
+public final class SwapiResource {
+    private final int id;
+    private final String name;
+
+    SwapiResource(int id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public String name() {
+        return name;
+    }
+}
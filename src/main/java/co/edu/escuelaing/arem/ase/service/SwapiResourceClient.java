@@ -0,0 +1,244 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import co.edu.escuelaing.arem.ase.metrics.Counter;
+import co.edu.escuelaing.arem.ase.metrics.LatencyHistogram;
+import co.edu.escuelaing.arem.ase.metrics.Metrics;
+import co.edu.escuelaing.arem.ase.resilience.UpstreamPolicy;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cliente genérico de las colecciones paginadas de SWAPI ({@code people}, {@code planets},
+ * {@code starships}...). Pide la primera página y, con el {@code count} y el tamaño de página que
+ * devuelve, pide el resto en paralelo en lugar de seguir los enlaces {@code next} uno a uno.
+ * El paralelismo se limita al bulkhead de la política para no provocar rechazos propios.
+ */
+final class SwapiResourceClient {
+    // Métricas de cada colección, resueltas una sola vez y no en cada página
+    private static final Map<String, CollectionMetrics> METRICS = Map.of(
+            ResourceGraph.FILMS, new CollectionMetrics(ResourceGraph.FILMS),
+            ResourceGraph.PEOPLE, new CollectionMetrics(ResourceGraph.PEOPLE),
+            ResourceGraph.PLANETS, new CollectionMetrics(ResourceGraph.PLANETS),
+            ResourceGraph.STARSHIPS, new CollectionMetrics(ResourceGraph.STARSHIPS));
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final UpstreamPolicy upstream;
+    private final Executor decodeExecutor;
+    private final int parallelPages;
+
+    /**
+     * Lee un elemento del arreglo {@code results}
+     */
+    @FunctionalInterface
+    interface ItemReader<T> {
+        /**
+         * @param json lector situado al inicio del objeto
+         * @return el elemento, o null para descartarlo
+         */
+        T read(JsonReader json) throws IOException;
+    }
+
+    /**
+     * @param client cliente HTTP compartido con el servicio
+     * @param baseUrl URL raíz de la API, terminada en {@code /} (por ejemplo {@code https://swapi.py4e.com/api/})
+     * @param upstream protecciones de las llamadas
+     * @param decodeExecutor executor en el que se decodifican los cuerpos
+     * @param parallelPages páginas pedidas a la vez como máximo
+     */
+    SwapiResourceClient(HttpClient client, String baseUrl, UpstreamPolicy upstream, Executor decodeExecutor, int parallelPages) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.upstream = upstream;
+        this.decodeExecutor = decodeExecutor;
+        this.parallelPages = Math.max(1, parallelPages);
+    }
+
+    /**
+     * Descarga todos los elementos de una colección
+     * @param collection nombre de la colección en la URL, una de las de {@link ResourceGraph}
+     * @param reader lector de cada elemento
+     * @return futuro con los elementos de todas las páginas, en orden
+     */
+    <T> CompletableFuture<List<T>> fetchAll(String collection, ItemReader<T> reader) {
+        if (!METRICS.containsKey(collection)) {
+            throw new IllegalArgumentException(String.format("Colección de SWAPI desconocida: %s", collection));
+        }
+        return fetchPage(collection, pageUrl(collection, 1), reader).thenCompose(first -> {
+            if (first.next == null) {
+                return CompletableFuture.completedFuture(first.items);
+            }
+            int pageSize = Math.max(1, first.items.size());
+            int pageCount = Math.max(2, (first.count + pageSize - 1) / pageSize);
+            return fetchPages(collection, pageCount, reader).thenCompose(rest -> {
+                List<T> items = new ArrayList<>(first.items);
+                for (Page<T> page : rest) {
+                    items.addAll(page.items);
+                }
+                // Si la colección creció desde la primera página quedan enlaces next por seguir
+                String next = rest.get(rest.size() - 1).next;
+                return next == null ? CompletableFuture.completedFuture(items) : followNext(collection, next, reader, items);
+            });
+        });
+    }
+
+    /**
+     * Pide las páginas 2 a {@code pageCount} con a lo sumo {@code parallelPages} peticiones en curso:
+     * cada «trabajador» toma la siguiente página libre al terminar la anterior
+     */
+    private <T> CompletableFuture<List<Page<T>>> fetchPages(String collection, int pageCount, ItemReader<T> reader) {
+        List<Page<T>> pages = new ArrayList<>(pageCount - 1);
+        for (int i = 2; i <= pageCount; i++) {
+            pages.add(null);
+        }
+        AtomicInteger nextPage = new AtomicInteger(2);
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(parallelPages, pageCount - 1)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = fetchNextPage(collection, nextPage, pageCount, reader, pages);
+        }
+        return CompletableFuture.allOf(workers).thenApply(done -> pages);
+    }
+
+    private <T> CompletableFuture<Void> fetchNextPage(String collection, AtomicInteger nextPage, int pageCount,
+                                                      ItemReader<T> reader, List<Page<T>> pages) {
+        int page = nextPage.getAndIncrement();
+        if (page > pageCount) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return fetchPage(collection, pageUrl(collection, page), reader).thenCompose(result -> {
+            pages.set(page - 2, result);
+            return fetchNextPage(collection, nextPage, pageCount, reader, pages);
+        });
+    }
+
+    private <T> CompletableFuture<List<T>> followNext(String collection, String url, ItemReader<T> reader, List<T> items) {
+        return fetchPage(collection, url, reader).thenCompose(page -> {
+            items.addAll(page.items);
+            return page.next == null ? CompletableFuture.completedFuture(items) : followNext(collection, page.next, reader, items);
+        });
+    }
+
+    private <T> CompletableFuture<Page<T>> fetchPage(String collection, String url, ItemReader<T> reader) {
+        CollectionMetrics metrics = METRICS.get(collection);
+        return upstream.call(aborted -> {
+            long start = System.nanoTime();
+            return SwapiExchange.send(client, buildRequest(url), decodeExecutor, response -> decodePage(url, response, reader), aborted)
+                    .whenComplete((page, error) -> {
+                        metrics.latency.recordSince(start);
+                        if (error != null) {
+                            metrics.errors.increment();
+                        }
+                    });
+        });
+    }
+
+    private static <T> Page<T> decodePage(String url, HttpResponse<InputStream> response, ItemReader<T> reader) {
+        try (Reader body = new InputStreamReader(response.body(), StandardCharsets.UTF_8)) {
+            if (response.statusCode() != 200) {
+                throw new IOException(String.format("SWAPI respondió %d a %s", response.statusCode(), url));
+            }
+            return readPage(new JsonReader(body), reader);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static <T> Page<T> readPage(JsonReader json, ItemReader<T> reader) throws IOException {
+        int count = 0;
+        String next = null;
+        List<T> items = new ArrayList<>();
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "count" -> count = json.nextInt();
+                case "next" -> next = json.nextString();
+                case "results" -> {
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        T item = reader.read(json);
+                        if (item != null) {
+                            items.add(item);
+                        }
+                    }
+                    json.endArray();
+                }
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        return new Page<>(count, next, items);
+    }
+
+    private String pageUrl(String collection, int page) {
+        return baseUrl + collection + "/?page=" + page + "&format=json";
+    }
+
+    private HttpRequest buildRequest(String url) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(upstream.timeout())
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+    }
+
+    /**
+     * Extrae el id numérico de una URL de SWAPI como {@code https://swapi.py4e.com/api/people/5/}
+     * @return el id, o -1 si la URL no termina en un número
+     */
+    static int idFromUrl(String url) {
+        int end = url.endsWith("/") ? url.length() - 1 : url.length();
+        int start = url.lastIndexOf('/', end - 1) + 1;
+        try {
+            return Integer.parseInt(url, start, end, 10);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+
+    private static final class CollectionMetrics {
+        private final LatencyHistogram latency;
+        private final Counter errors;
+
+        private CollectionMetrics(String collection) {
+            this.latency = Metrics.histogram("starwars_upstream_request_duration_seconds",
+                    "Duración de las peticiones a SWAPI, incluida la decodificación del cuerpo", "resource", collection);
+            this.errors = Metrics.counter("starwars_upstream_errors_total",
+                    "Peticiones a SWAPI fallidas por error de red, estado HTTP o JSON inválido", "resource", collection);
+        }
+    }
+
+    private static final class Page<T> {
+        private final int count;
+        private final String next;
+        private final List<T> items;
+
+        private Page(int count, String next, List<T> items) {
+            this.count = count;
+            this.next = next;
+            this.items = items;
+        }
+    }
+}
@@ -68,8 +68,8 @@ class StarWarsApp {
         }
 
         const id = parseInt(movieId);
-        if (isNaN(id) || id < 1 || id > 7) {
-            this.displayError('Por favor ingrese un número entre 1 y 7');
+        if (isNaN(id) || id < 1) {
+            this.displayError('Por favor ingrese un número de película válido');
             return false;
         }
 
@@ -0,0 +1,45 @@
+package co.edu.escuelaing.arem.ase;
+
+import co.edu.escuelaing.arem.ase.resilience.ClientRateLimiter;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Orden de los dos límites de admisión: un rechazo por sobrecarga no gasta el cupo del cliente
+ * y un rechazo por tasa no retiene el hueco global
+ */
+class AdmissionControlTest {
+    private static final InetAddress CLIENT = InetAddress.getLoopbackAddress();
+
+    // Un permiso por cliente que no se repone durante el test y un solo hueco global
+    private final AdmissionControl control = new AdmissionControl(new ClientRateLimiter(0.001, 1, 4096), 1);
+
+    @Test
+    void overloadDoesNotSpendTheClientBurst() throws UnknownHostException {
+        assertNull(control.admit(otherClient()));
+
+        assertEquals(503, control.admit(CLIENT).status());
+        control.release();
+
+        assertNull(control.admit(CLIENT));
+    }
+
+    @Test
+    void rateLimitedRequestReleasesItsSlot() throws UnknownHostException {
+        assertNull(control.admit(CLIENT));
+        control.release();
+
+        assertEquals(429, control.admit(CLIENT).status());
+
+        assertNull(control.admit(otherClient()));
+    }
+
+    private static InetAddress otherClient() throws UnknownHostException {
+        return InetAddress.getByAddress(new byte[]{10, 0, 0, 1});
+    }
+}
@@ -0,0 +1,103 @@
+package co.edu.escuelaing.arem.ase.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tiempo máximo, bulkhead y cortocircuito de {@link UpstreamPolicy} con llamadas simuladas
+ */
+class UpstreamPolicyTest {
+    private static final Duration TIMEOUT = Duration.ofMillis(100);
+
+    @Test
+    void timeoutFailsTheCallerAndAbortsTheCall() {
+        UpstreamPolicy policy = policy(1, 5);
+        AtomicReference<CompletableFuture<Void>> aborted = new AtomicReference<>();
+
+        CompletableFuture<String> result = policy.call(signal -> {
+            aborted.set(signal);
+            return new CompletableFuture<>();
+        });
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, failure.getCause());
+        assertTrue(aborted.get().isDone());
+    }
+
+    @Test
+    void abortedCallKeepsItsSlotUntilItEnds() throws Exception {
+        UpstreamPolicy policy = policy(1, 5);
+        CompletableFuture<String> running = new CompletableFuture<>();
+        CompletableFuture<String> slow = policy.call(signal -> running);
+        assertThrows(ExecutionException.class, () -> slow.get(5, TimeUnit.SECONDS));
+
+        // La llamada abortada aún no ha soltado la conexión: sigue contando en el límite
+        CompletableFuture<String> rejected = policy.call(signal -> CompletableFuture.completedFuture("ok"));
+        ExecutionException failure = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(CallNotPermittedException.class, failure.getCause());
+
+        running.completeExceptionally(new IOException("closed"));
+        assertEquals("ok", policy.call(signal -> CompletableFuture.completedFuture("ok")).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void lateResultDoesNotReplaceTheTimeout() {
+        UpstreamPolicy policy = policy(1, 5);
+        CompletableFuture<String> running = new CompletableFuture<>();
+        CompletableFuture<String> result = policy.call(signal -> running);
+        assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+
+        running.complete("late");
+
+        assertTrue(result.isCompletedExceptionally());
+    }
+
+    @Test
+    void timeoutsCountAsFailuresOnce() {
+        UpstreamPolicy policy = policy(2, 2);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> second = new CompletableFuture<>();
+        CompletableFuture<String> firstResult = policy.call(signal -> first);
+        assertThrows(ExecutionException.class, () -> firstResult.get(5, TimeUnit.SECONDS));
+        // Que la llamada abortada termine con error no suma otro fallo
+        first.completeExceptionally(new IOException("closed"));
+        assertEquals(CircuitBreaker.State.CLOSED, policy.circuitState());
+
+        CompletableFuture<String> secondResult = policy.call(signal -> second);
+        assertThrows(ExecutionException.class, () -> secondResult.get(5, TimeUnit.SECONDS));
+
+        assertEquals(CircuitBreaker.State.OPEN, policy.circuitState());
+    }
+
+    @Test
+    void successfulCallIsNotAborted() throws Exception {
+        UpstreamPolicy policy = policy(1, 5);
+        AtomicReference<CompletableFuture<Void>> aborted = new AtomicReference<>();
+
+        String value = policy.call(signal -> {
+            aborted.set(signal);
+            return CompletableFuture.completedFuture("ok");
+        }).get(5, TimeUnit.SECONDS);
+
+        assertEquals("ok", value);
+        Thread.sleep(TIMEOUT.toMillis() * 2);
+        assertFalse(aborted.get().isDone());
+    }
+
+    private static UpstreamPolicy policy(int maxConcurrent, int failureThreshold) {
+        return new UpstreamPolicy("test", TIMEOUT, maxConcurrent, new CircuitBreaker(failureThreshold, Duration.ofMinutes(1)));
+    }
+}
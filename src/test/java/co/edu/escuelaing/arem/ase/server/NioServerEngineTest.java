@@ -0,0 +1,197 @@
+package co.edu.escuelaing.arem.ase.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Motor NIO con un solo bucle de eventos: los manejadores que bloquean no frenan al resto de
+ * conexiones y los cuerpos grandes se envían por tramos, al ritmo del cliente
+ */
+class NioServerEngineTest {
+    // Más de lo que caben en los búferes del socket, para que el cliente lento frene al manejador
+    private static final int LARGE_BODY = 32 * 1024 * 1024;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CompletableFuture<Void> largeWritten = new CompletableFuture<>();
+    private NioServerEngine engine;
+
+    @AfterEach
+    void stop() {
+        release.countDown();
+        engine.stop();
+    }
+
+    @Test
+    void blockingHandlerDoesNotStallTheEventLoop() throws Exception {
+        start(Executors.newFixedThreadPool(4));
+        CompletableFuture<HttpResponse<String>> slow = client.sendAsync(request("/slow"), HttpResponse.BodyHandlers.ofString());
+
+        HttpResponse<String> fast = client.send(request("/fast"), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals("fast", fast.body());
+        assertFalse(slow.isDone());
+        release.countDown();
+        assertEquals("slow", slow.get(5, TimeUnit.SECONDS).body());
+    }
+
+    @Test
+    void largeBodiesAreStreamedOnOneConnection() throws Exception {
+        start(Executors.newFixedThreadPool(4));
+
+        HttpResponse<byte[]> chunked = client.send(request("/large"), HttpResponse.BodyHandlers.ofByteArray());
+        HttpResponse<byte[]> mapped = client.send(request("/buffer"), HttpResponse.BodyHandlers.ofByteArray());
+
+        assertArrayEquals(largeBody(), chunked.body());
+        assertArrayEquals(largeBody(), mapped.body());
+    }
+
+    @Test
+    void slowClientHoldsBackTheHandler() throws Exception {
+        start(Executors.newFixedThreadPool(4));
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), engine.port())) {
+            socket.setReceiveBufferSize(16 * 1024);
+            OutputStream out = socket.getOutputStream();
+            out.write("GET /large HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            skipHead(in);
+            Thread.sleep(300);
+
+            // Mientras el cliente no lee, el manejador no puede entregar todo el cuerpo
+            assertFalse(largeWritten.isDone());
+            assertArrayEquals(largeBody(), in.readNBytes(LARGE_BODY));
+            largeWritten.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void inlineHandlersStillWork() throws Exception {
+        start(null);
+
+        HttpResponse<byte[]> response = client.send(request("/buffer"), HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(200, response.statusCode());
+        assertArrayEquals(largeBody(), response.body());
+    }
+
+    @Test
+    void failingConnectionDoesNotStopTheEventLoop() throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        AtomicBoolean failed = new AtomicBoolean();
+        // Un executor que falla una vez con algo distinto de RejectedExecutionException
+        start(task -> {
+            if (failed.compareAndSet(false, true)) {
+                throw new IllegalStateException("Executor averiado");
+            }
+            workers.execute(task);
+        });
+        try {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), engine.port())) {
+                socket.setSoTimeout(5000);
+                socket.getOutputStream().write("GET /fast HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+
+                // Se cierra solo esa conexión
+                assertEquals(-1, socket.getInputStream().read());
+            }
+
+            HttpResponse<String> next = client.send(request("/fast"), HttpResponse.BodyHandlers.ofString());
+
+            assertEquals("fast", next.body());
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    private void start(Executor executor) throws IOException {
+        engine = new NioServerEngine(1, 0, Duration.ofSeconds(30), executor);
+        engine.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), this::handle);
+    }
+
+    private void handle(ServerExchange exchange) throws IOException {
+        switch (exchange.path()) {
+            case "/slow":
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                respond(exchange, "slow");
+                break;
+            case "/large":
+                byte[] body = largeBody();
+                exchange.sendResponseHeaders(200, body.length);
+                for (int offset = 0; offset < body.length; offset += 64 * 1024) {
+                    exchange.responseBody().write(body, offset, 64 * 1024);
+                }
+                largeWritten.complete(null);
+                exchange.close();
+                break;
+            case "/buffer":
+                exchange.sendResponseHeaders(200, LARGE_BODY);
+                ((WritableByteChannel) exchange.responseBody()).write(ByteBuffer.wrap(largeBody()).asReadOnlyBuffer());
+                exchange.close();
+                break;
+            default:
+                respond(exchange, "fast");
+        }
+    }
+
+    private static void respond(ServerExchange exchange, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.responseBody().write(body);
+        exchange.close();
+    }
+
+    private static void skipHead(InputStream in) throws IOException {
+        int matched = 0;
+        while (matched < 4) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Respuesta sin cabeceras completas");
+            }
+            matched = b == "\r\n\r\n".charAt(matched) ? matched + 1 : (b == '\r' ? 1 : 0);
+        }
+    }
+
+    private static byte[] largeBody() {
+        byte[] body = new byte[LARGE_BODY];
+        Arrays.fill(body, (byte) 'x');
+        for (int i = 0; i < body.length; i += 4096) {
+            body[i] = (byte) (i >>> 12);
+        }
+        return body;
+    }
+
+    private HttpRequest request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + engine.port() + path)).build();
+    }
+}
@@ -0,0 +1,94 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import co.edu.escuelaing.arem.ase.SwapiStub;
+import co.edu.escuelaing.arem.ase.model.Movie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Refresco condicional del catálogo contra el servidor local: se envían los validadores de la
+ * última respuesta y un 304 conserva el catálogo, con las mismas instancias de película
+ */
+class CatalogRevalidationTest {
+    private SwapiStub swapi;
+    private MovieService service;
+
+    @BeforeEach
+    void start() throws IOException {
+        swapi = SwapiStub.start();
+        service = new MovieService(swapi.filmsUrl(), Duration.ofMinutes(30));
+    }
+
+    @AfterEach
+    void stop() {
+        swapi.close();
+    }
+
+    @Test
+    void firstRequestIsUnconditional() {
+        service.lookupMovieAsync("4").join();
+
+        assertNull(swapi.lastIfNoneMatch());
+        assertNull(swapi.lastIfModifiedSince());
+    }
+
+    @Test
+    void refreshSendsTheValidatorsOfTheLastResponse() {
+        service.lookupMovieAsync("4").join();
+        String etag = swapi.filmsEtag();
+
+        service.refreshCatalogNow().join();
+
+        assertEquals(etag, swapi.lastIfNoneMatch());
+        assertNotNull(swapi.lastIfModifiedSince());
+    }
+
+    @Test
+    void notModifiedKeepsTheSameMovies() {
+        Movie before = service.lookupMovieAsync("4").join().movie();
+
+        service.refreshCatalogNow().join();
+        Movie after = service.lookupMovieAsync("4").join().movie();
+
+        assertEquals(1, swapi.notModifiedResponses());
+        assertSame(before, after);
+    }
+
+    @Test
+    void modifiedFilmsAreReloaded() {
+        Movie before = service.lookupMovieAsync("4").join().movie();
+        swapi.modifyFilms();
+
+        service.refreshCatalogNow().join();
+        Movie after = service.lookupMovieAsync("4").join().movie();
+
+        assertEquals(0, swapi.notModifiedResponses());
+        assertNotSame(before, after);
+        assertEquals(before.getTitle(), after.getTitle());
+        // El siguiente refresco ya envía los validadores nuevos
+        service.refreshCatalogNow().join();
+        assertEquals(swapi.filmsEtag(), swapi.lastIfNoneMatch());
+        assertEquals(1, swapi.notModifiedResponses());
+    }
+
+    @Test
+    void serverWithoutConditionalSupportSendsTheFullListing() {
+        swapi.conditionalResponses(false);
+        Movie before = service.lookupMovieAsync("4").join().movie();
+
+        service.refreshCatalogNow().join();
+
+        assertEquals(0, swapi.notModifiedResponses());
+        assertEquals(before.getTitle(), service.lookupMovieAsync("4").join().movie().getTitle());
+    }
+}
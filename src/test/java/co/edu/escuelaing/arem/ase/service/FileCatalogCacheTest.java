@@ -0,0 +1,124 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Caché compartida en archivo: dos instancias sobre el mismo directorio hacen de réplicas en
+ * procesos distintos, y un archivo dañado falla con {@link IOException}
+ */
+class FileCatalogCacheTest {
+    private static final int FORMAT = 0x53574331;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void publishedCatalogIsReadByAnotherReplica() throws IOException {
+        Instant publishedAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        byte[] payload = "[{\"episode_id\":4}]".getBytes(StandardCharsets.UTF_8);
+
+        new FileCatalogCache(directory).publish(new SharedCatalog(publishedAt, "\"v1\"", null, payload));
+        SharedCatalog read = new FileCatalogCache(directory).read();
+
+        assertEquals(publishedAt, read.publishedAt());
+        assertEquals("\"v1\"", read.etag());
+        assertNull(read.lastModified());
+        assertArrayEquals(payload, read.payload());
+    }
+
+    @Test
+    void missingCatalogReadsAsNull() throws IOException {
+        assertNull(new FileCatalogCache(directory).read());
+    }
+
+    @Test
+    void leaseIsExclusiveUntilItExpires() throws IOException, InterruptedException {
+        FileCatalogCache first = new FileCatalogCache(directory);
+        FileCatalogCache second = new FileCatalogCache(directory);
+        assertTrue(first.tryAcquireRefresh("a", Duration.ofMillis(200)));
+
+        assertFalse(second.tryAcquireRefresh("b", Duration.ofMinutes(1)));
+        Thread.sleep(400);
+
+        assertTrue(second.tryAcquireRefresh("b", Duration.ofMinutes(1)));
+        assertFalse(first.tryAcquireRefresh("a", Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void releasedLeaseCanBeTakenAtOnce() throws IOException {
+        FileCatalogCache first = new FileCatalogCache(directory);
+        FileCatalogCache second = new FileCatalogCache(directory);
+        assertTrue(first.tryAcquireRefresh("a", Duration.ofMinutes(1)));
+
+        second.releaseRefresh("b");
+        assertFalse(second.tryAcquireRefresh("b", Duration.ofMinutes(1)));
+        first.releaseRefresh("a");
+
+        assertTrue(second.tryAcquireRefresh("b", Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void oversizedLengthIsReportedAsCorrupt() throws IOException {
+        writeCatalog(Integer.MAX_VALUE, new byte[16]);
+
+        assertThrows(IOException.class, () -> new FileCatalogCache(directory).read());
+    }
+
+    @Test
+    void negativeLengthIsReportedAsCorrupt() throws IOException {
+        writeCatalog(-1, new byte[16]);
+
+        assertThrows(IOException.class, () -> new FileCatalogCache(directory).read());
+    }
+
+    @Test
+    void truncatedFileIsReportedAsCorrupt() throws IOException {
+        writeCatalog(64, new byte[16]);
+
+        assertThrows(IOException.class, () -> new FileCatalogCache(directory).read());
+    }
+
+    @Test
+    void unknownFormatIsRejected() throws IOException {
+        byte[] garbage = new byte[64];
+        Arrays.fill(garbage, (byte) 0x7f);
+        Files.write(directory.resolve("catalog.bin"), garbage);
+
+        assertThrows(IOException.class, () -> new FileCatalogCache(directory).read());
+    }
+
+    /**
+     * Escribe un catálogo con la cabecera válida y la longitud de contenido dada
+     */
+    private void writeCatalog(int declaredLength, byte[] payload) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.writeInt(FORMAT);
+            out.writeLong(System.currentTimeMillis());
+            out.writeBoolean(false);
+            out.writeBoolean(false);
+            out.writeInt(declaredLength);
+            out.write(payload);
+        }
+        Files.write(directory.resolve("catalog.bin"), buffer.toByteArray());
+    }
+}
@@ -0,0 +1,67 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Concesión de refresco entre dos réplicas que comparten un {@link InProcessCatalogCache}
+ */
+class InProcessCatalogCacheTest {
+    private static final Duration SHORT_LEASE = Duration.ofMillis(100);
+
+    private final InProcessCatalogCache cache = new InProcessCatalogCache();
+
+    @Test
+    void leaseIsExclusiveWhileItLasts() {
+        assertTrue(cache.tryAcquireRefresh("a", Duration.ofMinutes(1)));
+
+        assertFalse(cache.tryAcquireRefresh("b", Duration.ofMinutes(1)));
+        // El dueño puede renovarla
+        assertTrue(cache.tryAcquireRefresh("a", Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void expiredLeaseIsTakenOverByAnotherReplica() throws InterruptedException {
+        assertTrue(cache.tryAcquireRefresh("a", SHORT_LEASE));
+        Thread.sleep(SHORT_LEASE.toMillis() * 2);
+
+        assertTrue(cache.tryAcquireRefresh("b", Duration.ofMinutes(1)));
+        assertFalse(cache.tryAcquireRefresh("a", SHORT_LEASE));
+    }
+
+    @Test
+    void releasedLeaseCanBeTakenAtOnce() {
+        assertTrue(cache.tryAcquireRefresh("a", Duration.ofMinutes(1)));
+
+        cache.releaseRefresh("a");
+
+        assertTrue(cache.tryAcquireRefresh("b", Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void onlyTheOwnerReleasesTheLease() {
+        assertTrue(cache.tryAcquireRefresh("a", Duration.ofMinutes(1)));
+
+        cache.releaseRefresh("b");
+
+        assertFalse(cache.tryAcquireRefresh("b", Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void replicasReadTheLastPublication() {
+        assertNull(cache.read());
+        SharedCatalog catalog = new SharedCatalog(Instant.now(), "\"v1\"", null, "[]".getBytes(StandardCharsets.UTF_8));
+
+        cache.publish(catalog);
+
+        assertSame(catalog, cache.read());
+    }
+}
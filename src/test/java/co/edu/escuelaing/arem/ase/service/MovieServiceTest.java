@@ -0,0 +1,161 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import co.edu.escuelaing.arem.ase.SwapiStub;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Caché del catálogo de {@link MovieService} contra el servidor local: un único refresco para
+ * las consultas concurrentes, el catálogo expirado servido mientras se refresca o SWAPI falla, y
+ * el grafo de recursos que solo se vuelve a descargar si cambia el listado de películas
+ */
+class MovieServiceTest {
+    private static final Duration SHORT_TTL = Duration.ofMillis(500);
+
+    private SwapiStub swapi;
+
+    @BeforeEach
+    void startSwapi() throws IOException {
+        swapi = SwapiStub.start();
+    }
+
+    @AfterEach
+    void stopSwapi() {
+        swapi.close();
+    }
+
+    @Test
+    void concurrentMissesShareOneUpstreamRequest() {
+        swapi.delayResponses(Duration.ofMillis(200));
+        MovieService service = new MovieService(swapi.filmsUrl(), Duration.ofMinutes(30));
+
+        List<CompletableFuture<MovieLookup>> lookups = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            lookups.add(service.lookupMovieAsync("4"));
+        }
+
+        for (CompletableFuture<MovieLookup> lookup : lookups) {
+            assertEquals("A New Hope", lookup.join().movie().getTitle());
+        }
+        assertEquals(1, swapi.requests());
+    }
+
+    @Test
+    void freshCatalogIsServedWithoutUpstreamRequests() {
+        MovieService service = new MovieService(swapi.filmsUrl(), Duration.ofMinutes(30));
+        service.lookupMovieAsync("4").join();
+
+        MovieLookup lookup = service.lookupMovieAsync("5").join();
+
+        assertEquals("The Empire Strikes Back", lookup.movie().getTitle());
+        assertFalse(lookup.stale());
+        assertNull(service.lookupMovieAsync("42").join().movie());
+        assertEquals(1, swapi.requests());
+    }
+
+    @Test
+    void expiredCatalogIsServedStaleWhileOneRefreshRuns() throws InterruptedException {
+        MovieService service = new MovieService(swapi.filmsUrl(), SHORT_TTL);
+        service.lookupMovieAsync("4").join();
+        Thread.sleep(SHORT_TTL.toMillis() + 100);
+        swapi.delayResponses(Duration.ofMillis(300));
+
+        CompletableFuture<MovieLookup> first = service.lookupMovieAsync("4");
+        CompletableFuture<MovieLookup> second = service.lookupMovieAsync("6");
+
+        // Con catálogo expirado no se espera a SWAPI: el futuro ya está completo
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertTrue(first.join().stale());
+        assertEquals("A New Hope", first.join().movie().getTitle());
+        assertEquals("Return of the Jedi", second.join().movie().getTitle());
+
+        service.refreshCatalogNow().join();
+        assertFalse(service.lookupMovieAsync("4").join().stale());
+        assertEquals(2, swapi.requests());
+    }
+
+    @Test
+    void expiredCatalogIsServedWhenRefreshFails() throws InterruptedException {
+        MovieService service = new MovieService(swapi.filmsUrl(), SHORT_TTL);
+        service.lookupMovieAsync("4").join();
+        Thread.sleep(SHORT_TTL.toMillis() + 100);
+        swapi.failWith(500);
+
+        CompletionException failure = assertThrows(CompletionException.class, () -> service.refreshCatalogNow().join());
+        assertTrue(failure.getCause() instanceof MovieServiceException);
+
+        MovieLookup lookup = service.lookupMovieAsync("4").join();
+        assertTrue(lookup.stale());
+        assertEquals("A New Hope", lookup.movie().getTitle());
+    }
+
+    @Test
+    void resourceGraphIsKeptWhileFilmsAreUnchanged() throws InterruptedException {
+        MovieService service = new MovieService(swapi.filmsUrl(), SHORT_TTL);
+        assertFalse(service.lookupDetailsAsync("4").join().details().characters().isEmpty());
+        int initialRequests = swapi.requests();
+        Thread.sleep(SHORT_TTL.toMillis() + 100);
+
+        FilmDetailsLookup refreshed = awaitFreshDetails(service, "4");
+
+        // Solo la revalidación del listado, que responde 304: el grafo no se vuelve a descargar
+        assertEquals(initialRequests + 1, swapi.requests());
+        assertEquals(1, swapi.notModifiedResponses());
+        assertEquals("A New Hope", refreshed.details().movie().getTitle());
+    }
+
+    @Test
+    void resourceGraphIsReloadedWhenFilmsChange() throws InterruptedException {
+        MovieService service = new MovieService(swapi.filmsUrl(), SHORT_TTL);
+        service.lookupDetailsAsync("4").join();
+        int initialRequests = swapi.requests();
+        Thread.sleep(SHORT_TTL.toMillis() + 100);
+        swapi.modifyFilms();
+
+        awaitFreshDetails(service, "4");
+
+        // El listado completo y, de nuevo, todas las páginas del grafo
+        assertEquals(2 * initialRequests, swapi.requests());
+        assertEquals(0, swapi.notModifiedResponses());
+    }
+
+    @Test
+    void missingCatalogFailsWhenSwapiFails() {
+        swapi.failWith(503);
+        MovieService service = new MovieService(swapi.filmsUrl(), Duration.ofMinutes(30));
+
+        CompletionException failure = assertThrows(CompletionException.class, () -> service.lookupMovieAsync("4").join());
+
+        assertTrue(failure.getCause() instanceof MovieServiceException);
+    }
+
+    /**
+     * Consulta los detalles hasta que dejan de estar obsoletos, es decir, hasta que terminan los
+     * refrescos en segundo plano que lanzó la primera consulta
+     */
+    private static FilmDetailsLookup awaitFreshDetails(MovieService service, String id) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        FilmDetailsLookup lookup = service.lookupDetailsAsync(id).join();
+        while (lookup.stale() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            lookup = service.lookupDetailsAsync(id).join();
+        }
+        assertFalse(lookup.stale());
+        return lookup;
+    }
+}
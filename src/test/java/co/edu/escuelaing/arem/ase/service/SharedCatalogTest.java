@@ -0,0 +1,73 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import co.edu.escuelaing.arem.ase.SwapiStub;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Réplicas de {@link MovieService} que comparten el catálogo: una sola petición a SWAPI para
+ * todas, relevo de una concesión que nadie libera y refresco local si el almacén está dañado
+ */
+class SharedCatalogTest {
+    private SwapiStub swapi;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void startSwapi() throws IOException {
+        swapi = SwapiStub.start();
+    }
+
+    @AfterEach
+    void stopSwapi() {
+        swapi.close();
+    }
+
+    @Test
+    void replicasShareOneUpstreamRequest() {
+        InProcessCatalogCache cache = new InProcessCatalogCache();
+        MovieService first = new MovieService(swapi.filmsUrl(), Duration.ofMinutes(30), null, cache);
+        MovieService second = new MovieService(swapi.filmsUrl(), Duration.ofMinutes(30), null, cache);
+
+        assertEquals("A New Hope", first.lookupMovieAsync("4").join().movie().getTitle());
+        assertEquals("A New Hope", second.lookupMovieAsync("4").join().movie().getTitle());
+
+        assertEquals(1, swapi.requests());
+    }
+
+    @Test
+    void expiredLeaseOfAnotherNodeIsTakenOver() throws Exception {
+        InProcessCatalogCache cache = new InProcessCatalogCache();
+        // Un nodo que obtuvo la concesión y murió sin publicar ni liberarla
+        cache.tryAcquireRefresh("dead-node", Duration.ofMillis(300));
+        MovieService service = new MovieService(swapi.filmsUrl(), Duration.ofMinutes(30), null, cache);
+
+        MovieLookup lookup = service.lookupMovieAsync("4").get(5, TimeUnit.SECONDS);
+
+        assertEquals("A New Hope", lookup.movie().getTitle());
+        assertEquals(1, swapi.requests());
+        assertNotNull(cache.read());
+    }
+
+    @Test
+    void corruptSharedFileFallsBackToLocalRefresh() throws IOException {
+        Files.write(directory.resolve("catalog.bin"), new byte[]{0x53, 0x57, 0x43, 0x31, 0, 0, 0});
+        MovieService service = new MovieService(swapi.filmsUrl(), Duration.ofMinutes(30), null, new FileCatalogCache(directory));
+
+        assertEquals("A New Hope", service.lookupMovieAsync("4").join().movie().getTitle());
+
+        assertEquals(1, swapi.requests());
+    }
+}
@@ -0,0 +1,68 @@
+package co.edu.escuelaing.arem.ase.service;
+
+import co.edu.escuelaing.arem.ase.SwapiStub;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SWAPI que envía las cabeceras y luego el cuerpo gota a gota: el tiempo máximo de la petición
+ * debe cubrir también la lectura del cuerpo y dejar libre el hilo de refresco
+ */
+class UpstreamTimeoutTest {
+    private static final String TIMEOUT_KEY = "starwars.swapi.timeout-ms";
+
+    private SwapiStub swapi;
+
+    @BeforeEach
+    void startSwapi() throws IOException {
+        System.setProperty(TIMEOUT_KEY, "300");
+        swapi = SwapiStub.start();
+    }
+
+    @AfterEach
+    void stopSwapi() {
+        swapi.close();
+        System.clearProperty(TIMEOUT_KEY);
+    }
+
+    @Test
+    void slowBodyTimesOutAndReleasesTheRefreshThread() {
+        swapi.trickleResponses(Duration.ofMillis(20));
+        MovieService service = new MovieService(swapi.filmsUrl(), Duration.ofMinutes(30));
+
+        CompletionException failure = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThrows(CompletionException.class, () -> service.lookupMovieAsync("4").join()));
+        assertTrue(failure.getCause() instanceof MovieServiceException);
+        assertEquals("SWAPI no respondió a tiempo", failure.getCause().getMessage());
+
+        // Si la lectura abortada siguiera ocupando el hilo de refresco, este refresco no terminaría
+        swapi.trickleResponses(Duration.ZERO);
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> service.refreshCatalogNow().join());
+        assertEquals("A New Hope", service.lookupMovieAsync("4").join().movie().getTitle());
+    }
+
+    @Test
+    void slowBodyConnectionIsClosed() throws InterruptedException {
+        swapi.trickleResponses(Duration.ofMillis(20));
+        MovieService service = new MovieService(swapi.filmsUrl(), Duration.ofMinutes(30));
+
+        assertThrows(CompletionException.class, () -> service.lookupMovieAsync("4").join());
+
+        // El servidor lo nota al escribir tras el cierre, unos pocos bytes después
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (swapi.abandonedResponses() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, swapi.abandonedResponses());
+    }
+}
@@ -0,0 +1,329 @@
+package co.edu.escuelaing.arem.ase;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Servidor local que sustituye a SWAPI en las pruebas y los benchmarks: responde /api/films/ con una
+ * respuesta grabada, sin depender de la red. Las colecciones relacionadas (people, planets,
+ * starships) se generan con las entidades que referencia esa respuesta, paginadas de 10 en 10
+ * como en SWAPI. El listado de películas lleva {@code ETag} y {@code Last-Modified} y responde
+ * 304 a las peticiones condicionales mientras no se marque como modificado. Puede inyectar
+ * fallos (retardos o códigos de error) para medir el comportamiento del servicio cuando SWAPI
+ * está degradado.
+ */
+public final class SwapiStub implements AutoCloseable {
+    private static final String[] RELATED_COLLECTIONS = {"people", "planets", "starships"};
+    private static final int PAGE_SIZE = 10;
+    private final HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final AtomicInteger version = new AtomicInteger(1);
+    private volatile Instant lastModified = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+    private volatile boolean conditional = true;
+    private volatile long delayMillis;
+    private volatile int failureStatus;
+    private volatile long trickleMillis;
+    private final AtomicInteger abandoned = new AtomicInteger();
+    // Validadores de la última petición del listado, null si no llegaron
+    private volatile String lastIfNoneMatch;
+    private volatile String lastIfModifiedSince;
+
+    private SwapiStub(HttpServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Inicia el servidor en un puerto libre
+     * @return el servidor iniciado
+     * @throws IOException si no se puede abrir el puerto o leer la respuesta grabada
+     */
+    public static SwapiStub start() throws IOException {
+        byte[] films = readFixture("/swapi-films.json");
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        SwapiStub stub = new SwapiStub(server);
+        server.createContext("/api/films/", exchange -> {
+            stub.requests.incrementAndGet();
+            stub.lastIfNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            stub.lastIfModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+            stub.injectDelay();
+            if (stub.failureStatus != 0) {
+                exchange.sendResponseHeaders(stub.failureStatus, -1);
+                exchange.close();
+                return;
+            }
+            String etag = stub.filmsEtag();
+            Instant modified = stub.lastModified;
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(modified.atOffset(ZoneOffset.UTC)));
+            if (stub.conditional && notModified(exchange.getRequestHeaders(), etag, modified)) {
+                stub.notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, films.length);
+            if (stub.trickleMillis > 0) {
+                stub.trickle(exchange.getResponseBody(), films);
+            } else {
+                exchange.getResponseBody().write(films);
+            }
+            exchange.close();
+        });
+        String apiUrl = "http://localhost:" + server.getAddress().getPort() + "/api/";
+        for (String collection : RELATED_COLLECTIONS) {
+            List<byte[]> pages = generatePages(apiUrl, collection, referencedIds(films, collection));
+            server.createContext("/api/" + collection + "/", exchange -> {
+                stub.requests.incrementAndGet();
+                int page = pageParameter(exchange.getRequestURI().getRawQuery());
+                if (page < 1 || page > pages.size()) {
+                    exchange.sendResponseHeaders(404, -1);
+                    exchange.close();
+                    return;
+                }
+                byte[] body = pages.get(page - 1);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+                exchange.close();
+            });
+        }
+        server.setExecutor(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "swapi-stub");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+        return stub;
+    }
+
+    /**
+     * Evalúa las precondiciones como RFC 9110: si llega {@code If-None-Match} se ignora
+     * {@code If-Modified-Since}
+     */
+    private static boolean notModified(Headers request, String etag, Instant modified) {
+        String ifNoneMatch = request.getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        String ifModifiedSince = request.getFirst("If-Modified-Since");
+        if (ifModifiedSince == null) {
+            return false;
+        }
+        try {
+            Instant since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return !modified.isAfter(since);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private static SortedSet<Integer> referencedIds(byte[] films, String collection) {
+        SortedSet<Integer> ids = new TreeSet<>();
+        Matcher matcher = Pattern.compile("/api/" + collection + "/(\\d+)/").matcher(new String(films, StandardCharsets.UTF_8));
+        while (matcher.find()) {
+            ids.add(Integer.parseInt(matcher.group(1)));
+        }
+        return ids;
+    }
+
+    private static List<byte[]> generatePages(String apiUrl, String collection, SortedSet<Integer> ids) {
+        List<Integer> all = new ArrayList<>(ids);
+        List<byte[]> pages = new ArrayList<>();
+        int pageCount = Math.max(1, (all.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+        for (int page = 1; page <= pageCount; page++) {
+            StringBuilder json = new StringBuilder("{\"count\":").append(all.size()).append(",\"next\":");
+            json.append(page < pageCount ? "\"" + apiUrl + collection + "/?page=" + (page + 1) + "\"" : "null");
+            json.append(",\"results\":[");
+            for (int i = (page - 1) * PAGE_SIZE; i < Math.min(all.size(), page * PAGE_SIZE); i++) {
+                int id = all.get(i);
+                json.append(i % PAGE_SIZE == 0 ? "" : ",")
+                        .append("{\"name\":\"").append(collection).append(' ').append(id)
+                        .append("\",\"url\":\"").append(apiUrl).append(collection).append('/').append(id).append("/\"}");
+            }
+            pages.add(json.append("]}").toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return pages;
+    }
+
+    private static int pageParameter(String query) {
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                if (pair.startsWith("page=")) {
+                    try {
+                        return Integer.parseInt(pair.substring(5));
+                    } catch (NumberFormatException e) {
+                        return -1;
+                    }
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Lee un recurso del classpath de las pruebas y los benchmarks
+     * @param resource ruta del recurso
+     * @return su contenido
+     * @throws IOException si el recurso no existe
+     */
+    public static byte[] readFixture(String resource) throws IOException {
+        try (InputStream in = SwapiStub.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("No se encontró el recurso " + resource);
+            }
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * @return URL del listado de películas del servidor
+     */
+    public String filmsUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/api/films/";
+    }
+
+    /**
+     * Retrasa cada respuesta
+     * @param delay retardo antes de responder; cero para responder de inmediato
+     */
+    public void delayResponses(Duration delay) {
+        delayMillis = delay.toMillis();
+    }
+
+    /**
+     * Responde a todas las peticiones con un código de error
+     * @param status código HTTP; 0 para volver a responder con la respuesta grabada
+     */
+    public void failWith(int status) {
+        failureStatus = status;
+    }
+
+    /**
+     * Envía las cabeceras del listado de inmediato y luego el cuerpo byte a byte, como un servidor
+     * que se queda sin ancho de banda a mitad de la respuesta
+     * @param interval pausa entre bytes; cero para enviar el cuerpo de una vez
+     */
+    public void trickleResponses(Duration interval) {
+        trickleMillis = interval.toMillis();
+    }
+
+    /**
+     * @return respuestas lentas que el cliente cerró antes de recibir el cuerpo completo
+     */
+    public int abandonedResponses() {
+        return abandoned.get();
+    }
+
+    /**
+     * Activa o desactiva las respuestas 304; desactivadas, el listado se envía completo aunque
+     * la petición sea condicional, como un servidor que no implementa validadores
+     * @param enabled true para responder 304 cuando el listado no cambió
+     */
+    public void conditionalResponses(boolean enabled) {
+        conditional = enabled;
+    }
+
+    /**
+     * Marca el listado de películas como modificado: cambian su ETag y su fecha, así que la
+     * siguiente petición condicional recibe el listado completo
+     */
+    public void modifyFilms() {
+        version.incrementAndGet();
+        // Last-Modified tiene resolución de segundos: la fecha nueva debe ser estrictamente posterior
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        Instant previous = lastModified;
+        lastModified = now.isAfter(previous) ? now : previous.plusSeconds(1);
+    }
+
+    /**
+     * @return respuestas 304 enviadas
+     */
+    public int notModifiedResponses() {
+        return notModified.get();
+    }
+
+    /**
+     * @return ETag de la respuesta actual del listado, el que debería volver en {@code If-None-Match}
+     */
+    public String filmsEtag() {
+        return "\"films-" + version.get() + "\"";
+    }
+
+    /**
+     * @return cabecera {@code If-None-Match} de la última petición del listado, o null si no llegó
+     */
+    public String lastIfNoneMatch() {
+        return lastIfNoneMatch;
+    }
+
+    /**
+     * @return cabecera {@code If-Modified-Since} de la última petición del listado, o null si no llegó
+     */
+    public String lastIfModifiedSince() {
+        return lastIfModifiedSince;
+    }
+
+    private void trickle(OutputStream out, byte[] body) {
+        try {
+            for (byte b : body) {
+                out.write(b);
+                out.flush();
+                Thread.sleep(trickleMillis);
+            }
+        } catch (IOException e) {
+            abandoned.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void injectDelay() {
+        long delay = delayMillis;
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int requests() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}